@@ -0,0 +1,43 @@
+package it.halfweight.spring.cursor.pagination.jpa.benchmark;
+
+import it.halfweight.spring.cursor.pagination.jpa.repository.CustomRepositoryImpl;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spring context of the benchmarks, backed by an embedded H2 database.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EnableJpaRepositories(basePackageClasses = BenchmarkRepository.class, repositoryBaseClass = CustomRepositoryImpl.class)
+public class BenchmarkApplication {
+
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Starts the context and inserts the given number of rows, with {@literal 10} rows per created_at value so that the
+     * id tiebreaker of the sort is exercised.
+     */
+    public static ConfigurableApplicationContext start(int tableSize) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BenchmarkApplication.class).run();
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        long now = System.currentTimeMillis();
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < tableSize; i++) {
+            batch.add(new Object[]{"name-" + i, i % 100, new Timestamp(now - (i / 10) * 1000L)});
+            if (batch.size() == BATCH_SIZE || i == tableSize - 1) {
+                jdbcTemplate.batchUpdate("insert into benchmark_entity (name, category, created_at) values (?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        return context;
+    }
+}
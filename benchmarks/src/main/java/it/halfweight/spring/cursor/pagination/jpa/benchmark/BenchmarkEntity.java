@@ -0,0 +1,30 @@
+package it.halfweight.spring.cursor.pagination.jpa.benchmark;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.sql.Timestamp;
+
+@Entity
+@Table(name = "benchmark_entity", indexes = @Index(name = "benchmark_entity_created_at_id", columnList = "created_at, id"))
+public class BenchmarkEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    public Long id;
+
+    @Column(name = "name")
+    public String name;
+
+    @Column(name = "category")
+    public Integer category;
+
+    @Column(name = "created_at")
+    public Timestamp createdAt;
+
+}
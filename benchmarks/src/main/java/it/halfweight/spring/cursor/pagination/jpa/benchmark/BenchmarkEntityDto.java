@@ -0,0 +1,16 @@
+package it.halfweight.spring.cursor.pagination.jpa.benchmark;
+
+import java.sql.Timestamp;
+
+public class BenchmarkEntityDto {
+
+    public final Long id;
+    public final String name;
+    public final Timestamp createdAt;
+
+    public BenchmarkEntityDto(Long id, String name, Timestamp createdAt) {
+        this.id = id;
+        this.name = name;
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,7 @@
+package it.halfweight.spring.cursor.pagination.jpa.benchmark;
+
+import it.halfweight.spring.cursor.pagination.jpa.repository.CustomRepository;
+
+public interface BenchmarkRepository extends CustomRepository<BenchmarkEntity, Long> {
+
+}
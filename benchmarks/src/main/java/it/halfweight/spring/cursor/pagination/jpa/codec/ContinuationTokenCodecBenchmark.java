@@ -0,0 +1,63 @@
+package it.halfweight.spring.cursor.pagination.jpa.codec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of a continuation token on a {@code createdAt, id} sort.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContinuationTokenCodecBenchmark {
+
+    private final ContinuationTokenCodec binaryCodec = new BinaryContinuationTokenCodec();
+    private final ContinuationTokenCodec textCodec = new TextContinuationTokenCodec();
+    private Sort sort;
+    private ContinuationToken continuationToken;
+    private String binaryToken;
+    private String textToken;
+
+    @Setup
+    public void setUp() {
+        sort = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+        continuationToken = new ContinuationToken(0, false, new Object[]{new Timestamp(System.currentTimeMillis()), 123456789L});
+        binaryToken = binaryCodec.encode(continuationToken, sort);
+        textToken = textCodec.encode(continuationToken, sort);
+    }
+
+    @Benchmark
+    public String encodeBinary() {
+        return binaryCodec.encode(continuationToken, sort);
+    }
+
+    @Benchmark
+    public ContinuationToken decodeBinary() {
+        return binaryCodec.decode(binaryToken, sort);
+    }
+
+    @Benchmark
+    public String encodeText() {
+        return textCodec.encode(continuationToken, sort);
+    }
+
+    @Benchmark
+    public ContinuationToken decodeText() {
+        return textCodec.decode(textToken, sort);
+    }
+}
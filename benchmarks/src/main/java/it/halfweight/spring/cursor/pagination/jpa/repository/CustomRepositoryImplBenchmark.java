@@ -0,0 +1,136 @@
+package it.halfweight.spring.cursor.pagination.jpa.repository;
+
+import it.halfweight.spring.cursor.pagination.jpa.benchmark.BenchmarkApplication;
+import it.halfweight.spring.cursor.pagination.jpa.benchmark.BenchmarkEntity;
+import it.halfweight.spring.cursor.pagination.jpa.benchmark.BenchmarkEntityDto;
+import it.halfweight.spring.cursor.pagination.jpa.benchmark.BenchmarkRepository;
+import it.halfweight.spring.cursor.pagination.jpa.codec.ContinuationToken;
+import it.halfweight.spring.cursor.pagination.jpa.domain.CountMode;
+import it.halfweight.spring.cursor.pagination.jpa.domain.CursorPageRequest;
+import it.halfweight.spring.cursor.pagination.jpa.domain.CursorPaginationSlice;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of {@link CustomRepositoryImpl}, from the single steps of a cursor query to the end-to-end
+ * {@code findAllBy} against an embedded H2 table of {@code tableSize} rows.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomRepositoryImplBenchmark {
+
+    @Param({"1000000"})
+    public int tableSize;
+
+    @Param({"50"})
+    public int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private BenchmarkRepository repository;
+    private CustomRepositoryImpl<BenchmarkEntity, Long> target;
+    private EntityManager entityManager;
+    private Sort sort;
+    private long sortFingerprint;
+    private String continuationToken;
+    private ContinuationToken decodedToken;
+    private List<BenchmarkEntity> page;
+    private CustomRepositoryImpl.ClassProjection<BenchmarkEntity, BenchmarkEntityDto> projection;
+    private Object[] projectionValues;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        context = BenchmarkApplication.start(tableSize);
+        repository = context.getBean(BenchmarkRepository.class);
+        target = (CustomRepositoryImpl<BenchmarkEntity, Long>) AopProxyUtils.getSingletonTarget(repository);
+        entityManager = context.getBean(EntityManagerFactory.class).createEntityManager();
+        sort = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+        sortFingerprint = target.getSortFingerprint(sort);
+
+        CursorPaginationSlice<BenchmarkEntity> firstPage = repository.findAllBy(null, CursorPageRequest.of(pageSize, sort).withCountMode(CountMode.NONE));
+        page = firstPage.getContent();
+        continuationToken = firstPage.getContinuationToken();
+        decodedToken = new ContinuationToken(sortFingerprint, false, new Object[]{page.get(page.size() - 1).createdAt, page.get(page.size() - 1).id});
+        projection = new CustomRepositoryImpl.ClassProjection<>(BenchmarkEntityDto.class);
+        projectionValues = new Object[]{page.get(0).id, page.get(0).name, page.get(0).createdAt};
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        context.close();
+    }
+
+    @Benchmark
+    public CursorPaginationSlice<BenchmarkEntity> findFirstPage() {
+        return repository.findAllBy(null, CursorPageRequest.of(pageSize, sort).withCountMode(CountMode.NONE));
+    }
+
+    @Benchmark
+    public CursorPaginationSlice<BenchmarkEntity> findFirstPageWithCount() {
+        return repository.findAllBy(null, CursorPageRequest.of(pageSize, sort));
+    }
+
+    @Benchmark
+    public CursorPaginationSlice<BenchmarkEntity> findNextPage() {
+        return repository.findAllBy(null, CursorPageRequest.of(continuationToken, pageSize, sort));
+    }
+
+    @Benchmark
+    public String computeNextToken() {
+        return target.computeNextToken(page, sort, sortFingerprint);
+    }
+
+    @Benchmark
+    public Predicate continuationPredicate() {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BenchmarkEntity> query = cb.createQuery(BenchmarkEntity.class);
+        Root<BenchmarkEntity> root = query.from(BenchmarkEntity.class);
+        return target.getContinuationPredicate(decodedToken, sort).toPredicate(root, query, cb);
+    }
+
+    @Benchmark
+    public CustomRepositoryImpl.ClassProjection<BenchmarkEntity, BenchmarkEntityDto> classProjection() {
+        return new CustomRepositoryImpl.ClassProjection<>(BenchmarkEntityDto.class);
+    }
+
+    @Benchmark
+    public Selection<BenchmarkEntityDto> classProjectionSelection() {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BenchmarkEntityDto> query = cb.createQuery(BenchmarkEntityDto.class);
+        Root<BenchmarkEntity> root = query.from(BenchmarkEntity.class);
+        return projection.toSelection(root, cb);
+    }
+
+    @Benchmark
+    public BenchmarkEntityDto classProjectionNewInstance() {
+        return projection.newInstance(projectionValues);
+    }
+}
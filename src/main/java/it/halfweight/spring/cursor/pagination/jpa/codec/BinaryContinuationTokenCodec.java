@@ -0,0 +1,362 @@
+package it.halfweight.spring.cursor.pagination.jpa.codec;
+
+import it.halfweight.spring.cursor.pagination.jpa.exception.CursorPaginationException;
+import it.halfweight.spring.cursor.pagination.jpa.util.ConverterUtil;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.Assert;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Default {@link ContinuationTokenCodec}, it writes a compact positional binary format encoded in base64 url:
+ * <pre>
+ * version (1 byte) | flags (1 byte) | sort fingerprint (8 bytes) | values count (varint) | values
+ * </pre>
+ * Each value is written as a type tag (1 byte) followed by its payload, integer numbers and dates use zig-zag
+ * varints. Types without a dedicated tag are written as strings converted with {@link ConverterUtil}.
+ * <p>
+ * Tokens not starting with the binary version are decoded with the fallback codec, by default the
+ * {@link TextContinuationTokenCodec}, so tokens issued with the text format are still accepted.
+ */
+public class BinaryContinuationTokenCodec implements ContinuationTokenCodec {
+
+    private static final byte VERSION = (byte) 0x81;
+    private static final int PREVIOUS_FLAG = 1;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte LONG = 2;
+    private static final byte INTEGER = 3;
+    private static final byte SHORT = 4;
+    private static final byte BYTE = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte FLOAT = 7;
+    private static final byte TRUE = 8;
+    private static final byte FALSE = 9;
+    private static final byte BIG_DECIMAL = 10;
+    private static final byte BIG_INTEGER = 11;
+    private static final byte TIMESTAMP = 12;
+    private static final byte SQL_DATE = 13;
+    private static final byte SQL_TIME = 14;
+    private static final byte DATE = 15;
+    private static final byte INSTANT = 16;
+    private static final byte LOCAL_DATE = 17;
+    private static final byte LOCAL_DATE_TIME = 18;
+    private static final byte UUID_VALUE = 19;
+
+    private final ContinuationTokenCodec fallback;
+
+    public BinaryContinuationTokenCodec() {
+        this(new TextContinuationTokenCodec());
+    }
+
+    /**
+     * @param fallback codec used to decode tokens not written by this codec, must not be {@literal null}.
+     */
+    public BinaryContinuationTokenCodec(ContinuationTokenCodec fallback) {
+        Assert.notNull(fallback, "Fallback codec must not be null!");
+        this.fallback = fallback;
+    }
+
+    @Override
+    public String encode(ContinuationToken token, Sort sort) {
+        try {
+            Writer writer = new Writer(16 + token.size() * 10);
+            writer.writeByte(VERSION);
+            writer.writeByte(token.isPrevious() ? PREVIOUS_FLAG : 0);
+            writer.writeLong(token.getSortFingerprint());
+            writer.writeVarLong(token.size());
+            for (int i = 0; i < token.size(); i++) {
+                writeValue(writer, token.getValue(i));
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(writer.toByteArray());
+        } catch (Exception e) {
+            throw new CursorPaginationException("Unable to encode " + token, e);
+        }
+    }
+
+    @Override
+    public ContinuationToken decode(String token, Sort sort) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new CursorPaginationException("Unable to decode " + token, e);
+        }
+        if (bytes.length == 0 || bytes[0] != VERSION) {
+            return fallback.decode(token, sort);
+        }
+        try {
+            Reader reader = new Reader(bytes, 1);
+            boolean previous = (reader.readByte() & PREVIOUS_FLAG) != 0;
+            long sortFingerprint = reader.readLong();
+            int size = (int) reader.readVarLong();
+            if (size < 0 || size > bytes.length) {
+                throw new IllegalArgumentException("Invalid values count " + size);
+            }
+            Object[] values = new Object[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = readValue(reader);
+            }
+            if (reader.position != bytes.length) {
+                throw new IllegalArgumentException("Unexpected trailing bytes");
+            }
+            return new ContinuationToken(sortFingerprint, previous, values);
+        } catch (Exception e) {
+            throw new CursorPaginationException("Unable to decode " + token, e);
+        }
+    }
+
+    private static void writeValue(Writer writer, Object value) {
+        if (value == null) {
+            writer.writeByte(NULL);
+        } else if (value instanceof String) {
+            writer.writeByte(STRING);
+            writer.writeString((String) value);
+        } else if (value instanceof Long) {
+            writer.writeByte(LONG);
+            writer.writeZigZag((Long) value);
+        } else if (value instanceof Integer) {
+            writer.writeByte(INTEGER);
+            writer.writeZigZag((Integer) value);
+        } else if (value instanceof Short) {
+            writer.writeByte(SHORT);
+            writer.writeZigZag((Short) value);
+        } else if (value instanceof Byte) {
+            writer.writeByte(BYTE);
+            writer.writeZigZag((Byte) value);
+        } else if (value instanceof Double) {
+            writer.writeByte(DOUBLE);
+            writer.writeLong(Double.doubleToRawLongBits((Double) value));
+        } else if (value instanceof Float) {
+            writer.writeByte(FLOAT);
+            writer.writeZigZag(Float.floatToRawIntBits((Float) value));
+        } else if (value instanceof Boolean) {
+            writer.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof BigDecimal) {
+            writer.writeByte(BIG_DECIMAL);
+            writer.writeZigZag(((BigDecimal) value).scale());
+            writer.writeBytes(((BigDecimal) value).unscaledValue().toByteArray());
+        } else if (value instanceof BigInteger) {
+            writer.writeByte(BIG_INTEGER);
+            writer.writeBytes(((BigInteger) value).toByteArray());
+        } else if (value instanceof Timestamp) {
+            Timestamp timestamp = (Timestamp) value;
+            writer.writeByte(TIMESTAMP);
+            writer.writeZigZag(Math.floorDiv(timestamp.getTime(), 1000L));
+            writer.writeVarLong(timestamp.getNanos());
+        } else if (value instanceof java.sql.Date) {
+            writer.writeByte(SQL_DATE);
+            writer.writeZigZag(((Date) value).getTime());
+        } else if (value instanceof Time) {
+            writer.writeByte(SQL_TIME);
+            writer.writeZigZag(((Date) value).getTime());
+        } else if (value.getClass() == Date.class) {
+            writer.writeByte(DATE);
+            writer.writeZigZag(((Date) value).getTime());
+        } else if (value instanceof Instant) {
+            writer.writeByte(INSTANT);
+            writer.writeZigZag(((Instant) value).getEpochSecond());
+            writer.writeVarLong(((Instant) value).getNano());
+        } else if (value instanceof LocalDate) {
+            writer.writeByte(LOCAL_DATE);
+            writer.writeZigZag(((LocalDate) value).toEpochDay());
+        } else if (value instanceof LocalDateTime) {
+            writer.writeByte(LOCAL_DATE_TIME);
+            writer.writeZigZag(((LocalDateTime) value).toEpochSecond(ZoneOffset.UTC));
+            writer.writeVarLong(((LocalDateTime) value).getNano());
+        } else if (value instanceof UUID) {
+            writer.writeByte(UUID_VALUE);
+            writer.writeLong(((UUID) value).getMostSignificantBits());
+            writer.writeLong(((UUID) value).getLeastSignificantBits());
+        } else {
+            writer.writeByte(STRING);
+            writer.writeString((String) ConverterUtil.convert(value, String.class));
+        }
+    }
+
+    private static Object readValue(Reader reader) {
+        byte tag = reader.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return reader.readString();
+            case LONG:
+                return reader.readZigZag();
+            case INTEGER:
+                return (int) reader.readZigZag();
+            case SHORT:
+                return (short) reader.readZigZag();
+            case BYTE:
+                return (byte) reader.readZigZag();
+            case DOUBLE:
+                return Double.longBitsToDouble(reader.readLong());
+            case FLOAT:
+                return Float.intBitsToFloat((int) reader.readZigZag());
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case BIG_DECIMAL:
+                int scale = (int) reader.readZigZag();
+                return new BigDecimal(new BigInteger(reader.readBytes()), scale);
+            case BIG_INTEGER:
+                return new BigInteger(reader.readBytes());
+            case TIMESTAMP:
+                Timestamp timestamp = new Timestamp(reader.readZigZag() * 1000L);
+                timestamp.setNanos((int) reader.readVarLong());
+                return timestamp;
+            case SQL_DATE:
+                return new java.sql.Date(reader.readZigZag());
+            case SQL_TIME:
+                return new Time(reader.readZigZag());
+            case DATE:
+                return new Date(reader.readZigZag());
+            case INSTANT:
+                long epochSecond = reader.readZigZag();
+                return Instant.ofEpochSecond(epochSecond, reader.readVarLong());
+            case LOCAL_DATE:
+                return LocalDate.ofEpochDay(reader.readZigZag());
+            case LOCAL_DATE_TIME:
+                long localEpochSecond = reader.readZigZag();
+                return LocalDateTime.ofEpochSecond(localEpochSecond, (int) reader.readVarLong(), ZoneOffset.UTC);
+            case UUID_VALUE:
+                long mostSignificantBits = reader.readLong();
+                return new UUID(mostSignificantBits, reader.readLong());
+            default:
+                throw new IllegalArgumentException("Unknown value type " + tag);
+        }
+    }
+
+    private static final class Writer {
+
+        private byte[] buffer;
+        private int position;
+
+        private Writer(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void writeString(String value) {
+            writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] buffer;
+        private int position;
+
+        private Reader(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        private byte readByte() {
+            if (position >= buffer.length) {
+                throw new IllegalArgumentException("Unexpected end of token");
+            }
+            return buffer[position++];
+        }
+
+        private long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (readByte() & 0xFF);
+            }
+            return value;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        private long readZigZag() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private byte[] readBytes() {
+            long length = readVarLong();
+            if (length < 0 || length > buffer.length - position) {
+                throw new IllegalArgumentException("Invalid length " + length);
+            }
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + (int) length);
+            position += (int) length;
+            return bytes;
+        }
+
+        private String readString() {
+            long length = readVarLong();
+            if (length < 0 || length > buffer.length - position) {
+                throw new IllegalArgumentException("Invalid length " + length);
+            }
+            String value = new String(buffer, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return value;
+        }
+    }
+}
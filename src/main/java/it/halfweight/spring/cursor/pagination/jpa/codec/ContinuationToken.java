@@ -0,0 +1,70 @@
+package it.halfweight.spring.cursor.pagination.jpa.codec;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.Arrays;
+
+/**
+ * Decoded content of a continuationToken: the fingerprint of the sort used to generate it and the values of the
+ * boundary row, one per sort order and in the same position of the order.
+ */
+public final class ContinuationToken {
+
+    /**
+     * This field stores the fingerprint of the sort used on a previous call
+     */
+    private final long sortFingerprint;
+
+    /**
+     * This field is true when the token has been generated to access the previous page
+     */
+    private final boolean previous;
+
+    /**
+     * This array contains the values of the boundary row, the starting point for the current call.
+     * <p>
+     * Example:
+     * Given a table with the id: 1, 2, 3, 4, 5
+     * And assuming that the first request was: get the first 3 rows sorted by id asc
+     * In the second request, this array contains: [3]
+     */
+    private final Object[] values;
+
+    public ContinuationToken(long sortFingerprint, boolean previous, Object[] values) {
+        this.sortFingerprint = sortFingerprint;
+        this.previous = previous;
+        this.values = values;
+    }
+
+    public long getSortFingerprint() {
+        return sortFingerprint;
+    }
+
+    public boolean isPrevious() {
+        return previous;
+    }
+
+    /**
+     * Returns the number of values stored in the token.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Returns the value of the sort order at the given position. Values of types not natively supported by the
+     * codec can be returned in their {@link String} representation.
+     */
+    public Object getValue(int index) {
+        return values[index];
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("sortFingerprint", sortFingerprint)
+                .add("previous", previous)
+                .add("values", Arrays.toString(values))
+                .toString();
+    }
+}
@@ -0,0 +1,31 @@
+package it.halfweight.spring.cursor.pagination.jpa.codec;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * Converts a {@link ContinuationToken} to the opaque string returned to clients and vice-versa.
+ * <p>
+ * Implementations must be thread safe, a single instance is shared by all calls of a repository.
+ */
+public interface ContinuationTokenCodec {
+
+    /**
+     * Encodes the given token.
+     *
+     * @param token must not be {@literal null}.
+     * @param sort  the sort requested by the client, must not be {@literal null}.
+     * @return the encoded token, never {@literal null}.
+     * @throws it.halfweight.spring.cursor.pagination.jpa.exception.CursorPaginationException if the token can't be encoded
+     */
+    String encode(ContinuationToken token, Sort sort);
+
+    /**
+     * Decodes the given token.
+     *
+     * @param token must not be {@literal null}.
+     * @param sort  the sort requested by the client, must not be {@literal null}.
+     * @return the decoded token, never {@literal null}.
+     * @throws it.halfweight.spring.cursor.pagination.jpa.exception.CursorPaginationException if the token can't be decoded
+     */
+    ContinuationToken decode(String token, Sort sort);
+}
@@ -0,0 +1,87 @@
+package it.halfweight.spring.cursor.pagination.jpa.codec;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import it.halfweight.spring.cursor.pagination.jpa.exception.CursorPaginationException;
+import it.halfweight.spring.cursor.pagination.jpa.util.ConverterUtil;
+import it.halfweight.spring.cursor.pagination.jpa.util.SortUtil;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link ContinuationTokenCodec} using the original readable format.
+ * <p>
+ * token has the following structure:
+ * ${sortHash}_${continuationToken}
+ * <p>
+ * The prevSortHash: This field stores the sort hashed
+ * continuationToken: stores the field name and field value of the boundary element per each sorted property
+ * in this structure: ${fieldName1}=${fieldValue1};${fieldName2}=${fieldValue2};${fieldName3}=${fieldValue3}
+ * <p>
+ * A null value is stored as the field name alone, without {@code =}.
+ * <p>
+ * Tokens to access the previous page are prefixed by {@code <}. Values are converted with {@link ConverterUtil}.
+ */
+public class TextContinuationTokenCodec implements ContinuationTokenCodec {
+
+    private static final String UNSERSCORE = "_";
+    private static final String EQUAL = "=";
+    private static final String SEMICOLON = ";";
+    private static final String PREVIOUS = "<";
+
+    @Override
+    public String encode(ContinuationToken token, Sort sort) {
+        Map<String, String> mapToEncrypt = new LinkedHashMap<>();
+        try {
+            List<Sort.Order> orders = sort.toList();
+            List<String> entries = new ArrayList<>(orders.size());
+            for (int i = 0; i < orders.size(); i++) {
+                Object value = token.getValue(i);
+                String property = orders.get(i).getProperty();
+                mapToEncrypt.put(property, value == null ? null : (String) ConverterUtil.convert(value, String.class));
+                entries.add(value == null ? property : property + EQUAL + mapToEncrypt.get(property));
+            }
+            String enc = Joiner.on(SEMICOLON).join(entries);
+            String hash = SortUtil.md5Hex(sort);
+            return Base64.getUrlEncoder().encodeToString(((token.isPrevious() ? PREVIOUS : "") + hash + UNSERSCORE + enc).getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new CursorPaginationException("Unable to encrypt " + mapToEncrypt, e);
+        }
+    }
+
+    @Override
+    public ContinuationToken decode(String strToDecrypt, Sort sort) {
+        try {
+            byte[] decrypted = Base64.getUrlDecoder().decode(strToDecrypt);
+            String token = new String(decrypted, StandardCharsets.UTF_8);
+            boolean previous = token.startsWith(PREVIOUS);
+            String[] splitToken = (previous ? token.substring(PREVIOUS.length()) : token).split(UNSERSCORE, 2);
+            String prevSortHashed = splitToken[0];
+            Map<String, String> continuationToken = new HashMap<>();
+            for (String entry : Splitter.on(SEMICOLON).split(splitToken[1])) {
+                List<String> keyValue = Splitter.on(EQUAL).limit(2).splitToList(entry);
+                continuationToken.put(keyValue.get(0), keyValue.size() == 2 ? keyValue.get(1) : null);
+            }
+
+            List<Sort.Order> orders = sort.toList();
+            Object[] values = new Object[orders.size()];
+            for (int i = 0; i < orders.size(); i++) {
+                Preconditions.checkArgument(continuationToken.containsKey(orders.get(i).getProperty()), "ContinuationToken doesn't contain the sort property " + orders.get(i).getProperty());
+                values[i] = continuationToken.get(orders.get(i).getProperty());
+            }
+            // the text format stores the md5 hash of the sort, it's mapped to a fingerprint that never matches when the sort changed
+            long sortFingerprint = SortUtil.fingerprint(sort);
+            return new ContinuationToken(SortUtil.md5Hex(sort).equals(prevSortHashed) ? sortFingerprint : ~sortFingerprint, previous, values);
+        } catch (Exception e) {
+            throw new CursorPaginationException("Unable to decrypt " + strToDecrypt, e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package it.halfweight.spring.cursor.pagination.jpa.count;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.lang.Nullable;
+
+/**
+ * Estimates the number of rows of a table from the database statistics, used by
+ * {@link it.halfweight.spring.cursor.pagination.jpa.repository.CustomRepositoryImpl} instead of the count query of
+ * unfiltered pages. Estimates are read in constant time but can be stale, their accuracy depends on how recently the
+ * database refreshed its statistics.
+ * <p>
+ * See {@link PostgreSqlCountEstimator}, {@link ExplainCountEstimator} and {@link H2CountEstimator}, {@link #NONE}
+ * always executes the count query.
+ */
+public interface CountEstimator {
+
+    CountEstimator NONE = (entityManager, tableName) -> null;
+
+    /**
+     * Returns the estimated number of rows of the given table.
+     *
+     * @param entityManager the entity manager of the repository, queries run in its transaction.
+     * @param tableName     the table of the entity, as mapped by the persistence provider.
+     * @return the estimate, {@literal null} when the database has no statistics for the table, the count query is
+     * executed instead.
+     */
+    @Nullable
+    Long estimate(EntityManager entityManager, String tableName);
+}
@@ -0,0 +1,43 @@
+package it.halfweight.spring.cursor.pagination.jpa.count;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.lang.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link CountEstimator} reading the row estimate of the planner from {@code EXPLAIN SELECT * FROM table}. It
+ * understands the {@code rows} column of MySQL and MariaDB and the {@code rows=} estimate of the PostgreSQL text plan,
+ * other plans have no estimate.
+ */
+public class ExplainCountEstimator implements CountEstimator {
+
+    private static final Pattern ROWS = Pattern.compile("rows=(\\d+)");
+
+    @Override
+    @Nullable
+    public Long estimate(EntityManager entityManager, String tableName) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("EXPLAIN SELECT * FROM " + tableName)) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    if ("rows".equalsIgnoreCase(metaData.getColumnLabel(i))) {
+                        long rows = resultSet.getLong(i);
+                        return resultSet.wasNull() ? null : rows;
+                    }
+                }
+                Matcher matcher = ROWS.matcher(String.valueOf(resultSet.getString(1)));
+                return matcher.find() ? Long.parseLong(matcher.group(1)) : null;
+            }
+        });
+    }
+}
@@ -0,0 +1,27 @@
+package it.halfweight.spring.cursor.pagination.jpa.count;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * {@link CountEstimator} reading the {@code ROW_COUNT_ESTIMATE} column of the H2 2.x {@code INFORMATION_SCHEMA.TABLES},
+ * mostly useful in tests. The table is looked up in the current schema ignoring the case of its name, since H2 stores
+ * unquoted identifiers in upper case.
+ */
+public class H2CountEstimator implements CountEstimator {
+
+    private static final String QUERY = "SELECT ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES"
+            + " WHERE TABLE_SCHEMA = CURRENT_SCHEMA AND UPPER(TABLE_NAME) = UPPER(?1)";
+
+    @Override
+    @Nullable
+    public Long estimate(EntityManager entityManager, String tableName) {
+        List<?> result = entityManager.createNativeQuery(QUERY).setParameter(1, tableName).getResultList();
+        if (result.isEmpty() || result.get(0) == null) {
+            return null;
+        }
+        return ((Number) result.get(0)).longValue();
+    }
+}
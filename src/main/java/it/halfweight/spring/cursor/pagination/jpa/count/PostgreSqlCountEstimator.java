@@ -0,0 +1,26 @@
+package it.halfweight.spring.cursor.pagination.jpa.count;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * {@link CountEstimator} reading the {@code reltuples} statistic of {@code pg_class}, refreshed by PostgreSQL on
+ * {@code VACUUM}, {@code ANALYZE} and autovacuum. Tables never analyzed have no estimate.
+ */
+public class PostgreSqlCountEstimator implements CountEstimator {
+
+    private static final String QUERY = "SELECT CAST(reltuples AS bigint) FROM pg_class WHERE oid = to_regclass(?1)";
+
+    @Override
+    @Nullable
+    public Long estimate(EntityManager entityManager, String tableName) {
+        List<?> result = entityManager.createNativeQuery(QUERY).setParameter(1, tableName).getResultList();
+        if (result.isEmpty() || result.get(0) == null) {
+            return null;
+        }
+        long estimate = ((Number) result.get(0)).longValue();
+        return estimate < 0 ? null : estimate;
+    }
+}
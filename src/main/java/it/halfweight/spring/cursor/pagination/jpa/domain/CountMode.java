@@ -0,0 +1,37 @@
+package it.halfweight.spring.cursor.pagination.jpa.domain;
+
+/**
+ * Defines how the total number of elements is computed when a {@link CursorPageable} without continuationToken is
+ * executed. Requests with a continuationToken never execute a count query.
+ */
+public enum CountMode {
+
+    /**
+     * The count query is executed together with the page query, {@link CursorPaginationSlice#getSize()} returns the
+     * total number of elements.
+     */
+    EXACT,
+
+    /**
+     * No count query is executed, {@link CursorPaginationSlice#getSize()} returns the requested page size.
+     */
+    NONE,
+
+    /**
+     * The count query is executed the first time {@link CursorPaginationSlice#getTotalElements()} is called.
+     */
+    LAZY,
+
+    /**
+     * The count query is submitted to the repository count executor before the page query, so
+     * {@link CursorPaginationSlice#getTotalElements()} waits only for the part not already overlapped.
+     */
+    ASYNC,
+
+    /**
+     * The total number of elements is selected by the page query itself with a {@code count(*) over()} window, so page
+     * and count are read by a single statement. Pages of projections other than class projections, or fetched with
+     * {@link FetchMode#STATELESS}, execute the count query as {@link #EXACT}.
+     */
+    WINDOW
+}
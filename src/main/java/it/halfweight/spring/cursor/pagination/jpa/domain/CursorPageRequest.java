@@ -1,6 +1,7 @@
 package it.halfweight.spring.cursor.pagination.jpa.domain;
 
 import org.springframework.data.domain.Sort;
+import org.springframework.util.Assert;
 
 public class CursorPageRequest implements CursorPageable {
 
@@ -10,13 +11,26 @@ public class CursorPageRequest implements CursorPageable {
 
     private Sort sort;
 
+    private CountMode countMode = CountMode.EXACT;
+
+    private FetchMode fetchMode = FetchMode.DEFAULT;
+
+    private int countLimit;
+
     protected CursorPageRequest() {
     }
 
     protected CursorPageRequest(String continuationToken, int size, Sort sort) {
+        this(continuationToken, size, sort, CountMode.EXACT, FetchMode.DEFAULT, 0);
+    }
+
+    protected CursorPageRequest(String continuationToken, int size, Sort sort, CountMode countMode, FetchMode fetchMode, int countLimit) {
         this.continuationToken = continuationToken;
         this.size = size;
         this.sort = sort;
+        this.countMode = countMode;
+        this.fetchMode = fetchMode;
+        this.countLimit = countLimit;
     }
 
     public static CursorPageRequest of(String continuationToken, int size) {
@@ -35,6 +49,39 @@ public class CursorPageRequest implements CursorPageable {
         return new CursorPageRequest(continuationToken, size, sort);
     }
 
+    /**
+     * Returns a copy of this request executing the count with the given {@link CountMode}.
+     *
+     * @param countMode must not be {@literal null}.
+     * @return a new {@link CursorPageRequest}.
+     */
+    public CursorPageRequest withCountMode(CountMode countMode) {
+        Assert.notNull(countMode, "CountMode must not be null!");
+        return new CursorPageRequest(continuationToken, size, sort, countMode, fetchMode, countLimit);
+    }
+
+    /**
+     * Returns a copy of this request counting at most the given number of elements, {@literal 0} counts every element.
+     *
+     * @param countLimit must not be negative.
+     * @return a new {@link CursorPageRequest}.
+     */
+    public CursorPageRequest withCountLimit(int countLimit) {
+        Assert.isTrue(countLimit >= 0, "CountLimit must not be negative!");
+        return new CursorPageRequest(continuationToken, size, sort, countMode, fetchMode, countLimit);
+    }
+
+    /**
+     * Returns a copy of this request loading the page with the given {@link FetchMode}.
+     *
+     * @param fetchMode must not be {@literal null}.
+     * @return a new {@link CursorPageRequest}.
+     */
+    public CursorPageRequest withFetchMode(FetchMode fetchMode) {
+        Assert.notNull(fetchMode, "FetchMode must not be null!");
+        return new CursorPageRequest(continuationToken, size, sort, countMode, fetchMode, countLimit);
+    }
+
     @Override
     public int getSize() {
         return size;
@@ -50,4 +97,19 @@ public class CursorPageRequest implements CursorPageable {
         return continuationToken;
     }
 
+    @Override
+    public CountMode getCountMode() {
+        return countMode;
+    }
+
+    @Override
+    public FetchMode getFetchMode() {
+        return fetchMode;
+    }
+
+    @Override
+    public int getCountLimit() {
+        return countLimit;
+    }
+
 }
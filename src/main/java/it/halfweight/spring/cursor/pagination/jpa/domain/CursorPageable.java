@@ -32,6 +32,30 @@ public interface CursorPageable {
      */
     String getContinuationToken();
 
+    /**
+     * Returns how the total number of elements is computed for the first page.
+     * @return the {@link CountMode}, {@link CountMode#EXACT} by default
+     */
+    default CountMode getCountMode() {
+        return CountMode.EXACT;
+    }
+
+    /**
+     * Returns the maximum number of elements counted for the first page, so that the count stops scanning after them.
+     * @return the count limit, {@literal 0} by default to count every element
+     */
+    default int getCountLimit() {
+        return 0;
+    }
+
+    /**
+     * Returns how the rows of the page are loaded.
+     * @return the {@link FetchMode}, {@link FetchMode#DEFAULT} by default
+     */
+    default FetchMode getFetchMode() {
+        return FetchMode.DEFAULT;
+    }
+
     /**
      * Returns whether the current {@link CursorPageable} contains pagination information.
      * @return
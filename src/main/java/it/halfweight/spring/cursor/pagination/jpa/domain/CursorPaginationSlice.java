@@ -8,6 +8,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 public class CursorPaginationSlice<T> {
 
@@ -17,8 +19,16 @@ public class CursorPaginationSlice<T> {
 
     private final String continuationToken;
 
+    private final String previousToken;
+
     private final int size;
 
+    private final Supplier<Long> totalElements;
+
+    private final int countLimit;
+
+    private final boolean totalElementsEstimated;
+
     /**
      * Creates a new {@link CursorPaginationSlice} with the given content and metadata
      *
@@ -28,13 +38,37 @@ public class CursorPaginationSlice<T> {
      *                          {@link CursorPaginationSlice}. Can be {@literal null}.
      */
     public CursorPaginationSlice(@NonNull List<T> content, int size, @Nullable String continuationToken) {
+        this(content, size, continuationToken, null, null, 0, false);
+    }
+
+    /**
+     * Creates a new {@link CursorPaginationSlice} with the given content and metadata
+     *
+     * @param content                must not be {@literal null}. from the current one.
+     * @param size                   the size of the {@link CursorPaginationSlice} to be returned.
+     * @param continuationToken      continuationToken to access the next
+     *                               {@link CursorPaginationSlice}. Can be {@literal null}.
+     * @param previousToken          token to access the previous {@link CursorPaginationSlice}. Can be {@literal null}.
+     * @param totalElements          supplier of the total number of elements, it can compute the value lazily.
+     *                               Can be {@literal null} when the total is unknown.
+     * @param countLimit             maximum number of elements reported by the total, a greater total is truncated.
+     *                               {@literal 0} when the total is exact.
+     * @param totalElementsEstimated whether the total number of elements is estimated from the database statistics.
+     */
+    public CursorPaginationSlice(@NonNull List<T> content, int size, @Nullable String continuationToken,
+                                 @Nullable String previousToken, @Nullable Supplier<Long> totalElements, int countLimit,
+                                 boolean totalElementsEstimated) {
 
         Assert.notNull(content, "Content must not be null!");
 
         this.content = new ArrayList<>(content);
         this.continuationToken = continuationToken;
+        this.previousToken = previousToken;
         this.hasNext = continuationToken != null && !content.isEmpty();
         this.size = size;
+        this.totalElements = totalElements;
+        this.countLimit = countLimit;
+        this.totalElementsEstimated = totalElementsEstimated;
     }
 
     /**
@@ -48,6 +82,16 @@ public class CursorPaginationSlice<T> {
         return continuationToken;
     }
 
+    /**
+     * Returns the token to access the previous {@link CursorPaginationSlice} whether there's one.
+     * It can be used as continuationToken of a {@link CursorPageable} with the same sort.
+     *
+     * @return Returns the token to access the previous {@link CursorPaginationSlice} whether there's one.
+     */
+    public String getPreviousToken() {
+        return previousToken;
+    }
+
     /**
      * Returns the number of elements currently on this {@link CursorPaginationSlice}.
      *
@@ -66,6 +110,15 @@ public class CursorPaginationSlice<T> {
         return this.hasNext;
     }
 
+    /**
+     * Returns if there is a previous {@link CursorPaginationSlice}.
+     *
+     * @return if there is a previous {@link CursorPaginationSlice}.
+     */
+    public boolean hasPrevious() {
+        return previousToken != null && !content.isEmpty();
+    }
+
     /**
      * Returns whether the {@link CursorPaginationSlice} has content at all.
      *
@@ -93,6 +146,63 @@ public class CursorPaginationSlice<T> {
         return size;
     }
 
+    /**
+     * Returns whether the total number of elements is available, either already computed or computed on demand.
+     *
+     * @return whether the total number of elements is available.
+     */
+    public boolean hasTotalElements() {
+        return totalElements != null;
+    }
+
+    /**
+     * Returns the total number of elements matching the query. Depending on the {@link CountMode} this call can
+     * execute the count query or wait for its completion.
+     *
+     * @return the total number of elements, empty when no count was requested.
+     */
+    public Optional<Long> getTotalElements() {
+        return totalElements == null ? Optional.empty() : Optional.ofNullable(totalElements.get())
+                .map(total -> countLimit > 0 ? Math.min(total, countLimit) : total);
+    }
+
+    /**
+     * Returns whether the total number of elements was truncated at the count limit of the {@link CursorPageable}, so
+     * that there are more elements than {@link #getTotalElements()}. Depending on the {@link CountMode} this call can
+     * execute the count query or wait for its completion.
+     *
+     * @return whether the total number of elements was truncated.
+     */
+    public boolean isTotalElementsTruncated() {
+        if (countLimit <= 0 || totalElements == null) {
+            return false;
+        }
+        Long total = totalElements.get();
+        return total != null && total > countLimit;
+    }
+
+    /**
+     * Returns whether the total number of elements is an estimate read from the database statistics instead of the
+     * result of a count query, so it can differ from the actual number of elements.
+     *
+     * @return whether the total number of elements is estimated.
+     */
+    public boolean isTotalElementsEstimated() {
+        return totalElementsEstimated;
+    }
+
+    /**
+     * Returns a new {@link CursorPaginationSlice} with the given content and the tokens, size and total number of
+     * elements of this one.
+     *
+     * @param content must not be {@literal null}.
+     * @return a new {@link CursorPaginationSlice}.
+     */
+    public <U> CursorPaginationSlice<U> withContent(@NonNull List<U> content) {
+        return new CursorPaginationSlice<>(content, size, continuationToken, previousToken, totalElements, countLimit,
+                totalElementsEstimated);
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -0,0 +1,35 @@
+package it.halfweight.spring.cursor.pagination.jpa.domain;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * {@link PageImpl} whose total number of elements is an estimate read from the database statistics instead of the
+ * result of a count query, so it can differ from the actual number of elements.
+ *
+ * @param <T> the type of the content.
+ */
+public class EstimatedPage<T> extends PageImpl<T> {
+
+    /**
+     * Creates a new {@link EstimatedPage}.
+     *
+     * @param content  must not be {@literal null}.
+     * @param pageable must not be {@literal null}.
+     * @param total    the estimated total number of elements.
+     */
+    public EstimatedPage(List<T> content, Pageable pageable, long total) {
+        super(content, pageable, total);
+    }
+
+    /**
+     * Returns whether the total number of elements is estimated, always {@literal true}.
+     *
+     * @return {@literal true}.
+     */
+    public boolean isTotalElementsEstimated() {
+        return true;
+    }
+}
@@ -0,0 +1,31 @@
+package it.halfweight.spring.cursor.pagination.jpa.domain;
+
+/**
+ * Defines how the rows of a cursor page are loaded by the persistence provider.
+ */
+public enum FetchMode {
+
+    /**
+     * The fetch mode configured on the repository is used, {@link #MANAGED} unless changed.
+     */
+    DEFAULT,
+
+    /**
+     * Entities are loaded into the persistence context and stay managed, so their changes are flushed.
+     */
+    MANAGED,
+
+    /**
+     * Entities are loaded into the persistence context as read-only: no snapshot is kept and they are skipped by the
+     * dirty checking at flush time. The JDBC fetch size matches the page size.
+     */
+    READ_ONLY,
+
+    /**
+     * Rows are loaded through a Hibernate {@code StatelessSession} sharing the connection of the current session, or
+     * opening its own connection outside of a transaction, so entities never enter the persistence context. Lazy associations of the returned entities can't be initialized
+     * and pending changes of the persistence context are not flushed before the query. The JDBC fetch size matches
+     * the page size.
+     */
+    STATELESS
+}
@@ -0,0 +1,51 @@
+package it.halfweight.spring.cursor.pagination.jpa.domain;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Map;
+
+/**
+ * {@link Specification} whose predicate only depends on its template key: filter values are not embedded in the
+ * predicate but bound to named parameters created with
+ * {@link jakarta.persistence.criteria.CriteriaBuilder#parameter(Class, String)}.
+ * <p>
+ * When the query template cache of the repository is enabled, the criteria query built from a
+ * {@link TemplateSpecification} is reused by every call with the same template key, sort and projection, binding only
+ * the parameter values. Parameter names starting with {@code cursor} are reserved to the keyset predicate.
+ * <p>
+ * Example:
+ * <pre>
+ *     public class ByStringField implements TemplateSpecification&lt;TestEntity&gt; {
+ *         private final String value;
+ *
+ *         public Predicate toPredicate(Root&lt;TestEntity&gt; root, CriteriaQuery&lt;?&gt; query, CriteriaBuilder cb) {
+ *             return cb.equal(root.get("stringField"), cb.parameter(String.class, "stringField"));
+ *         }
+ *
+ *         public Object getTemplateKey() {
+ *             return ByStringField.class;
+ *         }
+ *
+ *         public Map&lt;String, Object&gt; getParameters() {
+ *             return Collections.singletonMap("stringField", value);
+ *         }
+ *     }
+ * </pre>
+ */
+public interface TemplateSpecification<T> extends Specification<T> {
+
+    /**
+     * Returns the key identifying the predicate built by this specification, two specifications with equal keys must
+     * build the same predicate.
+     *
+     * @return the template key, must implement equals and hashCode.
+     */
+    Object getTemplateKey();
+
+    /**
+     * Returns the values to bind to the parameters of the predicate.
+     *
+     * @return parameter values by name, never {@literal null}.
+     */
+    Map<String, Object> getParameters();
+}
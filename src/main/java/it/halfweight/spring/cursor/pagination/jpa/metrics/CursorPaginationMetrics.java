@@ -0,0 +1,61 @@
+package it.halfweight.spring.cursor.pagination.jpa.metrics;
+
+/**
+ * Hooks notified by {@link it.halfweight.spring.cursor.pagination.jpa.repository.CustomRepositoryImpl} about the
+ * executed queries, see {@link MicrometerCursorPaginationMetrics}. Every method does nothing by default and
+ * {@link #NOOP} switches the instrumentation off.
+ */
+public interface CursorPaginationMetrics {
+
+    CursorPaginationMetrics NOOP = new CursorPaginationMetrics() {
+    };
+
+    /**
+     * Kind of page requested by a query.
+     */
+    enum Page {
+        /**
+         * First page of a cursor or offset pagination, the count query may be executed.
+         */
+        FIRST,
+        /**
+         * Page requested with a continuationToken or an offset.
+         */
+        CONTINUATION,
+        /**
+         * Query without pagination.
+         */
+        NONE
+    }
+
+    /**
+     * Called after a repository query has been executed.
+     *
+     * @param operation     the repository method, for example {@code findAllBy}.
+     * @param domainClass   the entity class of the repository.
+     * @param resultClass   the class of the returned elements, the projection class or the entity class.
+     * @param page          the kind of the requested page.
+     * @param pageSize      the requested page size, {@literal 0} when unpaged.
+     * @param rows          the number of returned elements.
+     * @param durationNanos the duration of the whole call, count query included.
+     */
+    default void recordQuery(String operation, Class<?> domainClass, Class<?> resultClass, Page page, int pageSize, int rows, long durationNanos) {
+    }
+
+    /**
+     * Called after a count query has been executed.
+     *
+     * @param domainClass   the entity class of the repository.
+     * @param durationNanos the duration of the count query.
+     */
+    default void recordCount(Class<?> domainClass, long durationNanos) {
+    }
+
+    /**
+     * Called when a continuationToken can't be decoded or doesn't match the requested sort.
+     *
+     * @param domainClass the entity class of the repository.
+     */
+    default void recordTokenDecodeFailure(Class<?> domainClass) {
+    }
+}
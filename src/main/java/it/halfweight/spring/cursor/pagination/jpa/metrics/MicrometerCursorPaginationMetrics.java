@@ -0,0 +1,81 @@
+package it.halfweight.spring.cursor.pagination.jpa.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.util.Assert;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CursorPaginationMetrics} publishing to a Micrometer {@link MeterRegistry}:
+ * <ul>
+ *     <li>{@code cursor.pagination.query}: timer of the repository calls, tagged by operation, domain, projection and page</li>
+ *     <li>{@code cursor.pagination.page.size}: distribution of the requested page sizes, same tags</li>
+ *     <li>{@code cursor.pagination.rows}: distribution of the returned rows, same tags</li>
+ *     <li>{@code cursor.pagination.count}: timer of the count queries, tagged by domain</li>
+ *     <li>{@code cursor.pagination.token.decode.failures}: counter of the rejected continuationTokens, tagged by domain</li>
+ * </ul>
+ * Micrometer is an optional dependency of the library, this class can be used only when it's on the classpath.
+ */
+public class MicrometerCursorPaginationMetrics implements CursorPaginationMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<List<Object>, QueryMeters> queryMeters = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Timer> countTimers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Counter> tokenDecodeFailures = new ConcurrentHashMap<>();
+
+    public MicrometerCursorPaginationMetrics(MeterRegistry registry) {
+        Assert.notNull(registry, "MeterRegistry must not be null!");
+        this.registry = registry;
+    }
+
+    @Override
+    public void recordQuery(String operation, Class<?> domainClass, Class<?> resultClass, Page page, int pageSize, int rows, long durationNanos) {
+        List<Object> key = Arrays.asList(operation, domainClass, resultClass, page);
+        QueryMeters meters = queryMeters.get(key);
+        if (meters == null) {
+            meters = queryMeters.computeIfAbsent(key, k -> new QueryMeters(Tags.of(
+                    "operation", operation,
+                    "domain", domainClass.getSimpleName(),
+                    "projection", resultClass.getSimpleName(),
+                    "page", page.name().toLowerCase(Locale.ROOT))));
+        }
+        meters.timer.record(durationNanos, TimeUnit.NANOSECONDS);
+        if (pageSize > 0) {
+            meters.pageSize.record(pageSize);
+        }
+        meters.rows.record(rows);
+    }
+
+    @Override
+    public void recordCount(Class<?> domainClass, long durationNanos) {
+        countTimers.computeIfAbsent(domainClass, k -> registry.timer("cursor.pagination.count", "domain", k.getSimpleName()))
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordTokenDecodeFailure(Class<?> domainClass) {
+        tokenDecodeFailures.computeIfAbsent(domainClass, k -> registry.counter("cursor.pagination.token.decode.failures", "domain", k.getSimpleName()))
+                .increment();
+    }
+
+    private class QueryMeters {
+        private final Timer timer;
+        private final DistributionSummary pageSize;
+        private final DistributionSummary rows;
+
+        private QueryMeters(Tags tags) {
+            this.timer = registry.timer("cursor.pagination.query", tags);
+            this.pageSize = registry.summary("cursor.pagination.page.size", tags);
+            this.rows = registry.summary("cursor.pagination.rows", tags);
+        }
+    }
+}
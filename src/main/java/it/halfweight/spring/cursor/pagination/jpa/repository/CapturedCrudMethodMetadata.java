@@ -0,0 +1,154 @@
+package it.halfweight.spring.cursor.pagination.jpa.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.support.CrudMethodMetadata;
+import org.springframework.data.jpa.repository.support.QueryHints;
+import org.springframework.lang.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * {@link CrudMethodMetadata} of the repository method being invoked, unless the current thread runs a call bound to
+ * the metadata captured during an earlier invocation. The metadata handed by Spring Data is only available while the
+ * repository method runs on the caller thread, while deferred counts and prefetched pages run after it returned or
+ * on other threads, and must still apply the lock mode and the query hints of the method which requested them.
+ */
+class CapturedCrudMethodMetadata implements CrudMethodMetadata {
+
+    private static final CrudMethodMetadata NONE = new Snapshot(null, QueryHints.NoHints.INSTANCE, QueryHints.NoHints.INSTANCE, null, Optional.empty(), null);
+
+    private final CrudMethodMetadata invocationMetadata;
+
+    private final ThreadLocal<CrudMethodMetadata> boundMetadata = new ThreadLocal<>();
+
+    CapturedCrudMethodMetadata(CrudMethodMetadata invocationMetadata) {
+        this.invocationMetadata = invocationMetadata;
+    }
+
+    /**
+     * Returns a copy of the current metadata that stays valid after the repository method returned, without metadata
+     * when no repository method is being invoked.
+     */
+    CrudMethodMetadata capture() {
+        CrudMethodMetadata bound = boundMetadata.get();
+        if (bound != null) {
+            return bound;
+        }
+        try {
+            return new Snapshot(invocationMetadata.getLockModeType(), invocationMetadata.getQueryHints(),
+                    invocationMetadata.getQueryHintsForCount(), invocationMetadata.getComment(),
+                    invocationMetadata.getEntityGraph(), invocationMetadata.getMethod());
+        } catch (IllegalStateException e) {
+            // called outside of a repository method invocation, e.g. directly on the implementation
+            return NONE;
+        }
+    }
+
+    /**
+     * Runs the given call with the given captured metadata as the current one.
+     */
+    <R> R call(CrudMethodMetadata captured, Supplier<R> call) {
+        CrudMethodMetadata previous = boundMetadata.get();
+        boundMetadata.set(captured);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                boundMetadata.remove();
+            } else {
+                boundMetadata.set(previous);
+            }
+        }
+    }
+
+    private CrudMethodMetadata current() {
+        CrudMethodMetadata bound = boundMetadata.get();
+        return bound != null ? bound : invocationMetadata;
+    }
+
+    @Override
+    public LockModeType getLockModeType() {
+        return current().getLockModeType();
+    }
+
+    @Override
+    public QueryHints getQueryHints() {
+        return current().getQueryHints();
+    }
+
+    @Override
+    public QueryHints getQueryHintsForCount() {
+        return current().getQueryHintsForCount();
+    }
+
+    @Override
+    public String getComment() {
+        return current().getComment();
+    }
+
+    @Override
+    public Optional<EntityGraph> getEntityGraph() {
+        return current().getEntityGraph();
+    }
+
+    @Override
+    public Method getMethod() {
+        return current().getMethod();
+    }
+
+    private static final class Snapshot implements CrudMethodMetadata {
+
+        @Nullable
+        private final LockModeType lockModeType;
+        private final QueryHints queryHints;
+        private final QueryHints queryHintsForCount;
+        @Nullable
+        private final String comment;
+        private final Optional<EntityGraph> entityGraph;
+        @Nullable
+        private final Method method;
+
+        private Snapshot(@Nullable LockModeType lockModeType, QueryHints queryHints, QueryHints queryHintsForCount,
+                         @Nullable String comment, Optional<EntityGraph> entityGraph, @Nullable Method method) {
+            this.lockModeType = lockModeType;
+            this.queryHints = queryHints;
+            this.queryHintsForCount = queryHintsForCount;
+            this.comment = comment;
+            this.entityGraph = entityGraph;
+            this.method = method;
+        }
+
+        @Override
+        public LockModeType getLockModeType() {
+            return lockModeType;
+        }
+
+        @Override
+        public QueryHints getQueryHints() {
+            return queryHints;
+        }
+
+        @Override
+        public QueryHints getQueryHintsForCount() {
+            return queryHintsForCount;
+        }
+
+        @Override
+        public String getComment() {
+            return comment;
+        }
+
+        @Override
+        public Optional<EntityGraph> getEntityGraph() {
+            return entityGraph;
+        }
+
+        @Override
+        public Method getMethod() {
+            return method;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package it.halfweight.spring.cursor.pagination.jpa.repository;
+
+import it.halfweight.spring.cursor.pagination.jpa.domain.CursorPaginationSlice;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * {@link Iterator} over the elements of consecutive {@link CursorPaginationSlice}s, a slice is requested only when the
+ * elements of the previous one have been consumed.
+ */
+class CursorPageIterator<T> implements Iterator<T> {
+
+    private final Iterator<CursorPaginationSlice<T>> slices;
+    private final Consumer<List<T>> pageReleaser;
+    private List<T> currentPage = Collections.emptyList();
+    private Iterator<T> current = Collections.emptyIterator();
+
+    /**
+     * @param slices       the slices to iterate.
+     * @param pageReleaser called with the content of a page once all its elements have been consumed.
+     */
+    CursorPageIterator(Iterator<CursorPaginationSlice<T>> slices, Consumer<List<T>> pageReleaser) {
+        this.slices = slices;
+        this.pageReleaser = pageReleaser;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            releaseCurrentPage();
+            if (!slices.hasNext()) {
+                return false;
+            }
+            currentPage = slices.next().getContent();
+            current = currentPage.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    private void releaseCurrentPage() {
+        if (!currentPage.isEmpty()) {
+            pageReleaser.accept(currentPage);
+            currentPage = Collections.emptyList();
+        }
+    }
+}
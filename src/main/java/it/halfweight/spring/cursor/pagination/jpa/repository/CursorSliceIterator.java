@@ -0,0 +1,104 @@
+package it.halfweight.spring.cursor.pagination.jpa.repository;
+
+import it.halfweight.spring.cursor.pagination.jpa.domain.CursorPaginationSlice;
+import it.halfweight.spring.cursor.pagination.jpa.exception.CursorPaginationException;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * {@link Iterator} over consecutive {@link CursorPaginationSlice}s, each one fetched with the continuationToken of the
+ * previous one.
+ * <p>
+ * With a positive readAhead, up to readAhead following slices are fetched on the given {@link Executor} while the
+ * returned ones are being processed, otherwise every slice is fetched by the caller of {@link #next()}.
+ */
+class CursorSliceIterator<T> implements Iterator<CursorPaginationSlice<T>>, AutoCloseable {
+
+    private final Function<String, CursorPaginationSlice<T>> pageFetcher;
+    private final Executor executor;
+    private final int readAhead;
+    private final Deque<CompletableFuture<CursorPaginationSlice<T>>> prefetched = new ArrayDeque<>();
+    private final String continuationToken;
+    private CursorPaginationSlice<T> last;
+
+    /**
+     * @param continuationToken token of the first slice, can be {@literal null}.
+     * @param pageFetcher       returns the slice of the given continuationToken, on the caller or the executor threads.
+     * @param executor          executor fetching the following slices.
+     * @param readAhead         maximum number of slices fetched ahead of the consumer.
+     */
+    CursorSliceIterator(@Nullable String continuationToken, Function<String, CursorPaginationSlice<T>> pageFetcher,
+                        Executor executor, int readAhead) {
+        this.continuationToken = continuationToken;
+        this.pageFetcher = pageFetcher;
+        this.executor = executor;
+        this.readAhead = readAhead;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return last == null || last.hasNext();
+    }
+
+    @Override
+    public CursorPaginationSlice<T> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (prefetched.isEmpty()) {
+            last = pageFetcher.apply(last == null ? continuationToken : last.getContinuationToken());
+        } else {
+            last = join(prefetched.poll());
+        }
+        prefetch();
+        return last;
+    }
+
+    /**
+     * Cancels the slices fetched ahead which are not started yet.
+     */
+    @Override
+    public void close() {
+        prefetched.forEach(future -> future.cancel(false));
+        prefetched.clear();
+    }
+
+    private void prefetch() {
+        CompletableFuture<CursorPaginationSlice<T>> tail = prefetched.isEmpty() ? CompletableFuture.completedFuture(last) : prefetched.peekLast();
+        while (prefetched.size() < readAhead && !isLast(tail)) {
+            tail = tail.thenApplyAsync(slice -> slice != null && slice.hasNext() ? pageFetcher.apply(slice.getContinuationToken()) : null, executor);
+            prefetched.add(tail);
+        }
+    }
+
+    private static boolean isLast(CompletableFuture<? extends CursorPaginationSlice<?>> future) {
+        if (!future.isDone()) {
+            return false;
+        }
+        if (future.isCompletedExceptionally()) {
+            return true;
+        }
+        CursorPaginationSlice<?> slice = future.join();
+        return slice == null || !slice.hasNext();
+    }
+
+    private CursorPaginationSlice<T> join(CompletableFuture<CursorPaginationSlice<T>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            close();
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new CursorPaginationException("Unable to fetch the next page", e.getCause());
+        }
+    }
+}
@@ -6,6 +6,7 @@ import it.halfweight.spring.cursor.pagination.jpa.domain.CursorPaginationSlice;
 import it.halfweight.spring.cursor.pagination.jpa.domain.Projection;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -15,6 +16,9 @@ import org.springframework.lang.Nullable;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @NoRepositoryBean
 public interface CustomRepository<T, ID extends Serializable> extends JpaRepository<T, ID>, JpaSpecificationExecutor<T> {
@@ -37,6 +41,108 @@ public interface CustomRepository<T, ID extends Serializable> extends JpaReposit
      */
     CursorPaginationSlice<T> findAllBy(@Nullable Specification<T> spec, CursorPageable cursorPageable);
 
+    /**
+     * Returns a {@link CursorPaginationSlice} of entities matching the given {@link Specification} like
+     * {@link #findAllBy(Specification, CursorPageable)}, fetched in two bounded queries: the keyset query selects only
+     * the sort values and the ids of the page, then the entities are loaded by a single id IN query with the given fetch
+     * graph and returned in the keyset order.
+     * <P>
+     * Use it when the fetch graph, or the {@link org.springframework.data.jpa.repository.EntityGraph} of the repository
+     * method, fetches collections, which would make the persistence provider paginate the whole result in memory.
+     * The {@link Specification} filters the keyset query, which doesn't select the entity, so it must not fetch
+     * associations: such specifications are rejected with an {@link IllegalArgumentException}, fetch the associations
+     * with the fetch graph instead. The entity must have a single comparable id and
+     * {@link it.halfweight.spring.cursor.pagination.jpa.domain.FetchMode#STATELESS} is not supported.
+     *
+     * @param spec can be {@literal null}.
+     * @param cursorPageable must not be {@literal null}, it must have a sort.
+     * @param fetchGraphName name of the entity graph used as fetch graph, can be {@literal null}.
+     * @return never {@literal null}.
+     */
+    CursorPaginationSlice<T> findAllBy(@Nullable Specification<T> spec, CursorPageable cursorPageable, @Nullable String fetchGraphName);
+
+    /**
+     * Returns a {@link Stream} of all entities matching the given {@link Specification}, fetched in keyset pages of
+     * {@link CursorPageable#getSize()} elements starting from the continuationToken of the given {@link CursorPageable}.
+     * <P>
+     * Pages are fetched lazily while the stream is consumed, no count query is executed and the entities of a page are
+     * detached from the persistence context once all of them have been consumed, so memory stays bounded by the page size.
+     * The stream should be consumed within a transaction when the entities have lazy associations.
+     *
+     * @param spec can be {@literal null}.
+     * @param cursorPageable must not be {@literal null}, it must have a sort.
+     * @return never {@literal null}.
+     */
+    Stream<T> streamAllBy(@Nullable Specification<T> spec, CursorPageable cursorPageable);
+
+    /**
+     * Returns a {@link Stream} of all entities matching the given {@link Specification} like
+     * {@link #streamAllBy(Specification, CursorPageable)}, but the following pages are fetched on the given executor while
+     * the current one is being consumed, so that database round trips overlap with the processing of the entities.
+     * <P>
+     * At most readAhead pages are fetched ahead of the consumer. Pages fetched on the executor are read outside the
+     * caller transaction, so their entities are already detached. Close the stream to cancel the pending fetches when
+     * it's not fully consumed.
+     *
+     * @param spec can be {@literal null}.
+     * @param cursorPageable must not be {@literal null}, it must have a sort.
+     * @param executor must not be {@literal null}.
+     * @param readAhead maximum number of pages fetched ahead, {@literal 0} to fetch every page on the consumer thread.
+     * @return never {@literal null}.
+     */
+    Stream<T> streamAllBy(@Nullable Specification<T> spec, CursorPageable cursorPageable, Executor executor, int readAhead);
+
+    /**
+     * Returns a {@link Stream} of the consecutive {@link CursorPaginationSlice}s matching the given {@link Specification},
+     * starting from the continuationToken of the given {@link CursorPageable}. No count query is executed.
+     * <P>
+     * At most readAhead following pages are fetched on the given executor while the current one is being processed.
+     * Close the stream to cancel the pending fetches when it's not fully consumed.
+     *
+     * @param spec can be {@literal null}.
+     * @param cursorPageable must not be {@literal null}, it must have a sort.
+     * @param executor must not be {@literal null}.
+     * @param readAhead maximum number of pages fetched ahead, {@literal 0} to fetch every page on the consumer thread.
+     * @return never {@literal null}.
+     */
+    Stream<CursorPaginationSlice<T>> streamSlicesBy(@Nullable Specification<T> spec, CursorPageable cursorPageable, Executor executor, int readAhead);
+
+    /**
+     * Splits the entities matching the given {@link Specification} into disjoint ranges of the first sort property.
+     * Numeric and temporal properties are split into ranges of the same width between their minimum and maximum value,
+     * read by a single aggregate query, so ranges hold about the same number of entities only when the values are
+     * evenly distributed. Other properties are sampled at evenly spaced offsets, which scans the entities before them.
+     * <P>
+     * Every returned {@link Specification} can be walked with its own cursor, for example on a different thread.
+     * Entities with a null value of the first sort property belong to the first range. Fewer ranges than requested are
+     * returned when the first sort property has fewer distinct values.
+     *
+     * @param spec can be {@literal null}.
+     * @param sort must not be {@literal null}.
+     * @param partitions the requested number of ranges, must be positive.
+     * @return never {@literal null}.
+     */
+    List<Specification<T>> findPartitions(@Nullable Specification<T> spec, Sort sort, int partitions);
+
+    /**
+     * Returns an unordered {@link Stream} of all entities matching the given {@link Specification}. The ranges returned
+     * by {@link #findPartitions(Specification, Sort, int)} are walked in parallel with keyset pages of
+     * {@link CursorPageable#getSize()} elements, each one on its own task of the given executor with its own
+     * EntityManager, and so on its own connection, and with the lock mode and query hints of the calling repository
+     * method.
+     * <P>
+     * The executor must run the partitions concurrently, for example a pool with a thread per partition or virtual
+     * threads. Entities are read outside the caller transaction and returned detached. Close the stream to stop the
+     * walks when it's not fully consumed.
+     *
+     * @param spec can be {@literal null}.
+     * @param cursorPageable must not be {@literal null}, it must have a sort and no continuationToken.
+     * @param partitions the requested number of ranges, must be positive.
+     * @param executor must not be {@literal null}.
+     * @return never {@literal null}.
+     */
+    Stream<T> parallelStreamAllBy(@Nullable Specification<T> spec, CursorPageable cursorPageable, int partitions, Executor executor);
+
     /**
      * Returns all entities matching the given {@link Specification}, applying projection defined by given projectionClass.
      * <P>
@@ -119,6 +225,36 @@ public interface CustomRepository<T, ID extends Serializable> extends JpaReposit
      */
     <S> List<S> findAllProjection(@Nullable Specification<T> spec, Sort sort, Class<S> projectionClass, Projection<T, S> projection);
 
+    /**
+     * Returns a {@link CursorPaginationSlice} of entities matching the given {@link Specification}, applying projection
+     * defined by given projectionClass, like {@link #findAllBy(Specification, CursorPageable)}.
+     * <P>
+     * ProjectionClass should follow the rules of {@link #findAllProjection(Specification, Class)}. The continuationToken
+     * is computed from the projected values, so the projection must select every sort property, the entity id included
+     * when it's appended as tiebreaker, and store it in the field named as the constructor parameter.
+     *
+     * @param spec can be {@literal null}.
+     * @param cursorPageable must not be {@literal null}, it must have a sort.
+     * @param projectionClass must not be {@literal null}.
+     * @return never {@literal null}.
+     */
+    <S> CursorPaginationSlice<S> findAllProjection(@Nullable Specification<T> spec, CursorPageable cursorPageable, Class<S> projectionClass);
+
+    /**
+     * Returns a {@link CursorPaginationSlice} of entities matching the given {@link Specification}, applying projection
+     * to projectionClass defined by given {@link Projection}.
+     * <P>
+     * The continuationToken is computed from the projected values: projectionClass must declare a field named as every
+     * sort property, the entity id included when it's appended as tiebreaker.
+     *
+     * @param spec can be {@literal null}.
+     * @param cursorPageable must not be {@literal null}, it must have a sort.
+     * @param projectionClass must not be {@literal null}.
+     * @param projection must not be {@literal null}.
+     * @return never {@literal null}.
+     */
+    <S> CursorPaginationSlice<S> findAllProjection(@Nullable Specification<T> spec, CursorPageable cursorPageable, Class<S> projectionClass, Projection<T, S> projection);
+
     /**
      * Returns a {@link Page} of entities matching the given {@link Specification}, applying projection defined by given projectionClass.
      * <P>
@@ -147,6 +283,32 @@ public interface CustomRepository<T, ID extends Serializable> extends JpaReposit
      */
     <S> Page<S> findAllProjectionPaged(@Nullable Specification<T> spec, Pageable pageable, Class<S> projectionClass, Projection<T, S> projection);
 
+    /**
+     * Returns a {@link Slice} of entities matching the given {@link Specification}, applying projection defined by given projectionClass.
+     * <P>
+     * Unlike {@link #findAllProjectionPaged(Specification, Pageable, Class)} no count query is executed: one row more
+     * than the page size is fetched to know whether a next slice exists.
+     * ProjectionClass should follow the rules of {@link #findAllProjection(Specification, Class)}.
+     *
+     * @param spec can be {@literal null}.
+     * @param pageable must not be {@literal null}.
+     * @param projectionClass must not be {@literal null}.
+     * @return never {@literal null}.
+     */
+    <S> Slice<S> findAllProjectionSliced(@Nullable Specification<T> spec, Pageable pageable, Class<S> projectionClass);
+
+    /**
+     * Returns a {@link Slice} of entities matching the given {@link Specification}, applying projection to projectionClass
+     * defined by given {@link Projection}, without executing any count query.
+     *
+     * @param spec can be {@literal null}.
+     * @param pageable must not be {@literal null}.
+     * @param projectionClass must not be {@literal null}.
+     * @param projection must not be {@literal null}.
+     * @return never {@literal null}.
+     */
+    <S> Slice<S> findAllProjectionSliced(@Nullable Specification<T> spec, Pageable pageable, Class<S> projectionClass, Projection<T, S> projection);
+
     /**
      * Returns all entity ids matching the given {@link Specification}.
      *
@@ -155,4 +317,51 @@ public interface CustomRepository<T, ID extends Serializable> extends JpaReposit
      */
     List<ID> findAllIds(@Nullable Specification<T> spec);
 
+    /**
+     * Returns a {@link Stream} of the ids matching the given {@link Specification} in ascending chunks of at most
+     * chunkSize ids. Every chunk is fetched by its own keyset query on the id, after the last id of the previous chunk,
+     * only when the stream requests it, so memory stays bounded by the chunk size and no result set is kept open
+     * between chunks.
+     * <P>
+     * The entity must have a single comparable id.
+     *
+     * @param spec can be {@literal null}.
+     * @param chunkSize the maximum number of ids of a chunk, must be positive.
+     * @return never {@literal null}.
+     */
+    Stream<List<ID>> streamAllIds(@Nullable Specification<T> spec, int chunkSize);
+
+    /**
+     * Passes the ids matching the given {@link Specification} to the given consumer in ascending chunks of at most
+     * chunkSize ids, see {@link #streamAllIds(Specification, int)}.
+     *
+     * @param spec can be {@literal null}.
+     * @param chunkSize the maximum number of ids of a chunk, must be positive.
+     * @param chunkConsumer must not be {@literal null}.
+     */
+    void findAllIds(@Nullable Specification<T> spec, int chunkSize, Consumer<List<ID>> chunkConsumer);
+
+    /**
+     * Returns a {@link Stream} of the {@link Long} ids matching the given {@link Specification} in ascending chunks of
+     * at most chunkSize primitive values, see {@link #streamAllIds(Specification, int)}.
+     * <P>
+     * JPA reads every id as a {@link Long}, each chunk is copied into an array once fetched: the arrays are compact for
+     * the consumer to keep, but reading the ids boxes them like {@link #streamAllIds(Specification, int)} does.
+     *
+     * @param spec can be {@literal null}.
+     * @param chunkSize the maximum number of ids of a chunk, must be positive.
+     * @return never {@literal null}.
+     */
+    Stream<long[]> streamAllLongIds(@Nullable Specification<T> spec, int chunkSize);
+
+    /**
+     * Passes the {@link Long} ids matching the given {@link Specification} to the given consumer in ascending chunks of
+     * at most chunkSize primitive values, see {@link #streamAllIds(Specification, int)}.
+     *
+     * @param spec can be {@literal null}.
+     * @param chunkSize the maximum number of ids of a chunk, must be positive.
+     * @param chunkConsumer must not be {@literal null}.
+     */
+    void findAllLongIds(@Nullable Specification<T> spec, int chunkSize, Consumer<long[]> chunkConsumer);
+
 }
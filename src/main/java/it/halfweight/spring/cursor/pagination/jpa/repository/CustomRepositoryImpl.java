@@ -1,72 +1,461 @@
 package it.halfweight.spring.cursor.pagination.jpa.repository;
 
-import com.google.common.base.Joiner;
-import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import it.halfweight.spring.cursor.pagination.jpa.annotation.ProjectionCreator;
 import it.halfweight.spring.cursor.pagination.jpa.annotation.SelectPath;
+import it.halfweight.spring.cursor.pagination.jpa.codec.BinaryContinuationTokenCodec;
+import it.halfweight.spring.cursor.pagination.jpa.codec.ContinuationToken;
+import it.halfweight.spring.cursor.pagination.jpa.codec.ContinuationTokenCodec;
+import it.halfweight.spring.cursor.pagination.jpa.count.CountEstimator;
+import it.halfweight.spring.cursor.pagination.jpa.domain.CountMode;
+import it.halfweight.spring.cursor.pagination.jpa.domain.CursorPageRequest;
 import it.halfweight.spring.cursor.pagination.jpa.domain.CursorPageable;
 import it.halfweight.spring.cursor.pagination.jpa.domain.CursorPaginationSlice;
+import it.halfweight.spring.cursor.pagination.jpa.domain.EstimatedPage;
+import it.halfweight.spring.cursor.pagination.jpa.domain.FetchMode;
 import it.halfweight.spring.cursor.pagination.jpa.domain.Projection;
+import it.halfweight.spring.cursor.pagination.jpa.domain.TemplateSpecification;
 import it.halfweight.spring.cursor.pagination.jpa.exception.CursorPaginationException;
-import it.halfweight.spring.cursor.pagination.jpa.util.ConverterUtil;
+import it.halfweight.spring.cursor.pagination.jpa.metrics.CursorPaginationMetrics;
+import it.halfweight.spring.cursor.pagination.jpa.util.SortUtil;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceException;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
 import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.NullOrdering;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.hibernate.query.criteria.JpaCriteriaQuery;
+import org.hibernate.query.criteria.JpaDerivedRoot;
+import org.hibernate.query.criteria.JpaOrder;
+import org.hibernate.query.criteria.JpaSubQuery;
+import org.hibernate.query.TupleTransformer;
+import org.hibernate.query.sqm.NodeBuilder;
+import org.hibernate.query.NullPrecedence;
+import org.hibernate.query.sqm.tree.expression.SqmExpression;
+import org.hibernate.query.sqm.tree.select.SqmSelectStatement;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.query.QueryUtils;
 import org.springframework.data.jpa.repository.support.CrudMethodMetadata;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.QueryHints;
 import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.lang.Nullable;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.Assert;
-import org.springframework.util.DigestUtils;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.ReflectionUtils;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
 import java.lang.reflect.Parameter;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
-import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
 
 public class CustomRepositoryImpl<T, ID extends Serializable> extends SimpleJpaRepository<T, ID> implements CustomRepository<T, ID> {
 
     @SuppressWarnings("rawtypes")
     private final Map<Class, Projection> projectionMap = new ConcurrentHashMap<>();
+    private final Map<String, SortPropertyAccessor> sortPropertyAccessors = new ConcurrentHashMap<>();
+    private final Map<List<Object>, SortPropertyAccessor> projectionPropertyAccessors = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> nullableSortProperties = new ConcurrentHashMap<>();
     private final EntityManager em;
     private final JpaEntityInformation<T, ?> entityInformation;
-    private static final String UNSERSCORE = "_";
-    private static final String EQUAL = "=";
-    private static final String SEMICOLON = ";";
+    @Nullable
+    private final String tiebreakerProperty;
+    private static final int QUERY_TEMPLATE_CACHE_SIZE = 256;
+    private static final String KEYSET_PARAMETER = "cursor";
+    private static final String CURSOR_TEMPLATE = "cursor";
+    private static final String PROJECTION_TEMPLATE = "projection";
+    private static final String NO_SPECIFICATION_TEMPLATE = "none";
+    private static final Executor DEFAULT_COUNT_EXECUTOR = createDefaultCountExecutor();
+    private KeysetPredicateStrategy keysetPredicateStrategy = KeysetPredicateStrategy.EXPANDED;
+    private volatile NullOrdering dialectNullOrdering;
+    private volatile String tableName;
+    private Executor countExecutor = DEFAULT_COUNT_EXECUTOR;
+    @Nullable
+    private TransactionTemplate countTransactionTemplate;
+    private ContinuationTokenCodec continuationTokenCodec = new BinaryContinuationTokenCodec();
+    private boolean queryTemplateCacheEnabled = false;
+    private CursorPaginationMetrics metrics = CursorPaginationMetrics.NOOP;
+    private FetchMode fetchMode = FetchMode.MANAGED;
+    private boolean projectionConstructorInvokerEnabled = false;
+    private CountEstimator countEstimator = CountEstimator.NONE;
+    @Nullable
+    private volatile Cache<List<Object>, Long> countCache;
+    private final AtomicLong countCacheGeneration = new AtomicLong();
+    private final Object countCacheWriteKey = new Object();
+    private final Cache<List<Object>, QueryTemplate<?>> queryTemplates = CacheBuilder.newBuilder()
+            .maximumSize(QUERY_TEMPLATE_CACHE_SIZE)
+            .build();
+    @Nullable
+    private CapturedCrudMethodMetadata methodMetadata;
 
 
     public CustomRepositoryImpl(JpaEntityInformation<T, ?> entityInformation, EntityManager entityManager) {
         super(entityInformation, entityManager);
         this.em = entityManager;
         this.entityInformation = entityInformation;
+        this.tiebreakerProperty = getTiebreakerProperty(entityInformation);
+    }
+
+    /**
+     * Wraps the metadata of the repository methods so that the queries executed after the invocation returned, or on
+     * other threads, still apply the lock mode and the query hints of the method which requested them.
+     */
+    @Override
+    public void setRepositoryMethodMetadata(CrudMethodMetadata crudMethodMetadata) {
+        this.methodMetadata = crudMethodMetadata == null ? null : new CapturedCrudMethodMetadata(crudMethodMetadata);
+        super.setRepositoryMethodMetadata(methodMetadata);
+    }
+
+    /**
+     * Returns the {@link KeysetPredicateStrategy} used to translate continuation tokens into predicates.
+     *
+     * @return the current strategy, never {@literal null}.
+     */
+    public KeysetPredicateStrategy getKeysetPredicateStrategy() {
+        return keysetPredicateStrategy;
+    }
+
+    /**
+     * Configures the {@link KeysetPredicateStrategy} used by this repository, default is {@link KeysetPredicateStrategy#EXPANDED}.
+     *
+     * @param keysetPredicateStrategy must not be {@literal null}.
+     */
+    public void setKeysetPredicateStrategy(KeysetPredicateStrategy keysetPredicateStrategy) {
+        Assert.notNull(keysetPredicateStrategy, "KeysetPredicateStrategy must not be null!");
+        this.keysetPredicateStrategy = keysetPredicateStrategy;
+    }
+
+    /**
+     * Configures the {@link Executor} running the count queries requested with {@link CountMode#ASYNC}, default is
+     * a pool of daemon threads bounded to the number of processors and shared by the repositories.
+     *
+     * @param countExecutor must not be {@literal null}.
+     */
+    public void setCountExecutor(Executor countExecutor) {
+        Assert.notNull(countExecutor, "Executor must not be null!");
+        this.countExecutor = countExecutor;
+    }
+
+    /**
+     * Configures the {@link PlatformTransactionManager} of the count queries requested with {@link CountMode#ASYNC},
+     * default is {@literal null}.
+     * <p>
+     * When configured, every count query runs in a new read-only transaction, and so on its own connection, while the
+     * page query runs in the caller one. Otherwise it runs outside of any transaction. In both cases the count doesn't
+     * see the changes not yet committed by the caller transaction.
+     *
+     * @param transactionManager can be {@literal null}.
+     */
+    public void setCountTransactionManager(@Nullable PlatformTransactionManager transactionManager) {
+        if (transactionManager == null) {
+            this.countTransactionTemplate = null;
+            return;
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.setReadOnly(true);
+        this.countTransactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Configures the {@link ContinuationTokenCodec} used to write and read continuationTokens, default is the
+     * {@link BinaryContinuationTokenCodec}.
+     *
+     * @param continuationTokenCodec must not be {@literal null}.
+     */
+    public void setContinuationTokenCodec(ContinuationTokenCodec continuationTokenCodec) {
+        Assert.notNull(continuationTokenCodec, "ContinuationTokenCodec must not be null!");
+        this.continuationTokenCodec = continuationTokenCodec;
+    }
+
+    /**
+     * Enables the cache of criteria query templates, default is disabled.
+     * <p>
+     * When enabled, cursor and projection queries without specification or with a {@link TemplateSpecification} are
+     * built once per sort, projection and template key, following calls only bind the parameter values and apply the
+     * lock mode and query hints of the repository method, as uncached queries do.
+     * <p>
+     * Templates keep the HQL string rendered from the criteria query: Hibernate caches the interpretation of HQL
+     * strings in its query plan cache, while criteria queries are copied and interpreted again on every execution.
+     *
+     * @param queryTemplateCacheEnabled whether the cache is enabled.
+     */
+    public void setQueryTemplateCacheEnabled(boolean queryTemplateCacheEnabled) {
+        this.queryTemplateCacheEnabled = queryTemplateCacheEnabled;
+        if (!queryTemplateCacheEnabled) {
+            queryTemplates.invalidateAll();
+        }
+    }
+
+    /**
+     * Configures the {@link CursorPaginationMetrics} notified about the executed queries, default is
+     * {@link CursorPaginationMetrics#NOOP}.
+     *
+     * @param metrics must not be {@literal null}.
+     */
+    public void setMetrics(CursorPaginationMetrics metrics) {
+        Assert.notNull(metrics, "CursorPaginationMetrics must not be null!");
+        this.metrics = metrics;
+    }
+
+    /**
+     * Enables the creation of {@link ClassProjection} instances through their constructor invoker, default is disabled.
+     * <p>
+     * When enabled, queries of a {@link ClassProjection} select the array of its values instead of a constructor
+     * expression and every row is turned into the projection by a {@link java.lang.invoke.MethodHandle} resolved once
+     * per projection class, instead of a reflective instantiation per row.
+     *
+     * @param projectionConstructorInvokerEnabled whether the constructor invoker is used.
+     */
+    public void setProjectionConstructorInvokerEnabled(boolean projectionConstructorInvokerEnabled) {
+        this.projectionConstructorInvokerEnabled = projectionConstructorInvokerEnabled;
+        queryTemplates.invalidateAll();
+    }
+
+    /**
+     * Configures the {@link FetchMode} of the cursor pages requested with {@link FetchMode#DEFAULT}, default is
+     * {@link FetchMode#MANAGED}.
+     *
+     * @param fetchMode must not be {@literal null} nor {@link FetchMode#DEFAULT}.
+     */
+    public void setFetchMode(FetchMode fetchMode) {
+        Assert.notNull(fetchMode, "FetchMode must not be null!");
+        Preconditions.checkArgument(fetchMode != FetchMode.DEFAULT, "Repository FetchMode must not be DEFAULT");
+        this.fetchMode = fetchMode;
+    }
+
+    /**
+     * Configures the {@link CountEstimator} used instead of the count query on the first page of unfiltered cursor and
+     * projection queries, default is {@link CountEstimator#NONE}. When the database has no estimate the count query is
+     * executed.
+     *
+     * @param countEstimator must not be {@literal null}.
+     */
+    public void setCountEstimator(CountEstimator countEstimator) {
+        Assert.notNull(countEstimator, "CountEstimator must not be null!");
+        this.countEstimator = countEstimator;
+    }
+
+    /**
+     * Configures the cache of count results, default is disabled.
+     * <p>
+     * When enabled, counts of the same domain class, predicate and parameters are served from memory until they are
+     * evicted by size or expire, or until a transaction saving or deleting entities through this repository completes.
+     * The transaction writing the entities doesn't use the cache until then, so it always counts its own changes.
+     * Only counts without specification or with a {@link TemplateSpecification}, identified by its template key and
+     * parameter values, are cached. Changes not made through this repository are visible only after the time to live.
+     *
+     * @param maximumSize the maximum number of cached counts, {@literal 0} disables the cache.
+     * @param timeToLive  must not be {@literal null}.
+     */
+    public void setCountCache(long maximumSize, Duration timeToLive) {
+        Preconditions.checkArgument(maximumSize >= 0, "Count cache size must not be negative");
+        Assert.notNull(timeToLive, "TimeToLive must not be null!");
+        this.countCache = maximumSize == 0 ? null : CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .build();
+    }
+
+    /**
+     * Discards every count cached by this repository, for example after bulk updates executed outside of it.
+     */
+    public void invalidateCountCache() {
+        countCacheGeneration.incrementAndGet();
+        Cache<List<Object>, Long> cache = countCache;
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Invalidates the count cache once the current transaction completes, so that other threads can't cache again the
+     * count read before the commit, or immediately when there's no transaction synchronization.
+     */
+    private void invalidateCountCacheOnCompletion() {
+        if (countCache == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidateCountCache();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(countCacheWriteKey)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(countCacheWriteKey, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(countCacheWriteKey);
+                invalidateCountCache();
+            }
+        });
+    }
+
+    @Override
+    @Transactional
+    public <S extends T> S save(S entity) {
+        S saved = super.save(entity);
+        invalidateCountCacheOnCompletion();
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public void delete(T entity) {
+        super.delete(entity);
+        invalidateCountCacheOnCompletion();
+    }
+
+    @Override
+    @Transactional
+    public long delete(@Nullable Specification<T> spec) {
+        long deleted = super.delete(spec);
+        invalidateCountCacheOnCompletion();
+        return deleted;
+    }
+
+    @Override
+    @Transactional
+    public void deleteAllInBatch(Iterable<T> entities) {
+        super.deleteAllInBatch(entities);
+        invalidateCountCacheOnCompletion();
+    }
+
+    @Override
+    @Transactional
+    public void deleteAllByIdInBatch(Iterable<ID> ids) {
+        super.deleteAllByIdInBatch(ids);
+        invalidateCountCacheOnCompletion();
+    }
+
+    @Override
+    @Transactional
+    public void deleteAllInBatch() {
+        super.deleteAllInBatch();
+        invalidateCountCacheOnCompletion();
+    }
+
+    @Override
+    public long count(@Nullable Specification<T> spec) {
+        return getCachedCount(spec, 0, () -> super.count(spec));
+    }
+
+    /**
+     * Applies the {@link Sort.NullHandling} of the sort, which isn't supported by the criteria queries of
+     * {@link SimpleJpaRepository}.
+     */
+    @Override
+    protected <S extends T> TypedQuery<S> getQuery(@Nullable Specification<S> spec, Class<S> domainClass, Sort sort) {
+        if (sort.stream().allMatch(order -> order.getNullHandling() == Sort.NullHandling.NATIVE)) {
+            return bindTemplateParameters(super.getQuery(spec, domainClass, sort), spec);
+        }
+        Specification<S> sortedSpec = (root, query, cb) -> {
+            query.orderBy(getOrders(sort, root, cb));
+            return spec == null ? null : spec.toPredicate(root, query, cb);
+        };
+        return bindTemplateParameters(super.getQuery(sortedSpec, domainClass, Sort.unsorted()), spec);
+    }
+
+    /**
+     * Binds the parameters of a {@link TemplateSpecification}, which count queries don't know about.
+     */
+    @Override
+    protected <S extends T> TypedQuery<Long> getCountQuery(@Nullable Specification<S> spec, Class<S> domainClass) {
+        return bindTemplateParameters(super.getCountQuery(spec, domainClass), spec);
+    }
+
+    /**
+     * Binds the parameter values of the given specification when it's a {@link TemplateSpecification}.
+     */
+    private static <Q extends TypedQuery<?>> Q bindTemplateParameters(Q query, @Nullable Specification<?> spec) {
+        if (spec instanceof TemplateSpecification) {
+            ((TemplateSpecification<?>) spec).getParameters().forEach((name, value) -> query.setParameter(name, value));
+        }
+        return query;
     }
 
     @Override
@@ -81,23 +470,419 @@ public class CustomRepositoryImpl<T, ID extends Serializable> extends SimpleJpaR
 
     @Override
     public CursorPaginationSlice<T> findAllBy(Specification<T> spec, CursorPageable cursorPageable) {
+        return findCursorSlice("findAllBy", spec, cursorPageable, getDomainClass(), null, this::getLastValue);
+    }
+
+    @Override
+    public CursorPaginationSlice<T> findAllBy(Specification<T> spec, CursorPageable cursorPageable, @Nullable String fetchGraphName) {
+        Preconditions.checkArgument(cursorPageable.getSort() != null, "Can't execute a cursor find without a sort");
+        Preconditions.checkArgument(tiebreakerProperty != null, "Can't fetch the ids of " + getDomainClass() + " without a single comparable id");
+        FetchMode fetchMode = getFetchMode(cursorPageable);
+        Preconditions.checkArgument(fetchMode != FetchMode.STATELESS, "Can't fetch the entities by id through a StatelessSession");
+        List<String> properties = getCursorSort(cursorPageable.getSort()).stream().map(Sort.Order::getProperty).collect(toList());
+        int idIndex = properties.indexOf(tiebreakerProperty);
+
+        CursorPaginationSlice<Object[]> keys = findCursorSlice("findAllBy.keys", rejectingFetches(spec), cursorPageable, Object[].class,
+                (root, cb) -> cb.array(properties.stream().map(property -> getSortExpression(root, property)).toArray(Selection<?>[]::new)),
+                (row, propertyName) -> row[properties.indexOf(propertyName)]);
+        List<Object> ids = keys.getContent().stream().map(row -> row[idIndex]).collect(toList());
+        return keys.withContent(findAllInOrder(ids, fetchGraphName, fetchMode));
+    }
+
+    /**
+     * Returns the given {@link Specification} failing with a clear message when it fetches associations: the keyset
+     * query selects the sort values and not the entity, which Hibernate rejects when the query fetches associations
+     * of it. Associations are fetched by the fetch graph of the entity query instead.
+     */
+    @Nullable
+    private static <T> Specification<T> rejectingFetches(@Nullable Specification<T> spec) {
+        if (spec == null) {
+            return null;
+        }
+        if (spec instanceof TemplateSpecification) {
+            TemplateSpecification<T> templateSpec = (TemplateSpecification<T>) spec;
+            return new TemplateSpecification<T>() {
+                @Override
+                public Predicate toPredicate(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+                    return checkNoFetches(root, spec.toPredicate(root, query, cb));
+                }
+
+                @Override
+                public Object getTemplateKey() {
+                    return templateSpec.getTemplateKey();
+                }
+
+                @Override
+                public Map<String, Object> getParameters() {
+                    return templateSpec.getParameters();
+                }
+            };
+        }
+        return (root, query, cb) -> checkNoFetches(root, spec.toPredicate(root, query, cb));
+    }
+
+    @Nullable
+    private static Predicate checkNoFetches(Root<?> root, @Nullable Predicate predicate) {
+        Preconditions.checkArgument(root.getFetches().isEmpty(),
+                "Can't select the keys of a Specification fetching associations, fetch them with the fetch graph instead");
+        return predicate;
+    }
+
+    /**
+     * Loads the entities of the given ids with a single query and returns them in the order of the ids, skipping the
+     * ones deleted in the meantime.
+     */
+    private List<T> findAllInOrder(List<Object> ids, @Nullable String fetchGraphName, FetchMode fetchMode) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<T> entities = recordQuery("findAllBy.entities", getDomainClass(), null, () -> {
+            TypedQuery<T> query = getQuery((root, q, cb) -> root.get(tiebreakerProperty).in(ids), Sort.unsorted());
+            if (fetchGraphName != null) {
+                query.setHint(EntityGraph.EntityGraphType.FETCH.getKey(), em.getEntityGraph(fetchGraphName));
+            }
+            if (fetchMode == FetchMode.READ_ONLY) {
+                query.setHint(HibernateHints.HINT_READ_ONLY, true);
+            }
+            return query.getResultList();
+        });
+        Map<Object, T> entitiesById = new HashMap<>();
+        for (T entity : entities) {
+            entitiesById.put(entityInformation.getId(entity), entity);
+        }
+        return ids.stream().map(entitiesById::get).filter(Objects::nonNull).collect(toList());
+    }
+
+    /**
+     * Executes a cursor page query selecting the given projection, or the entity when no projection is given, and
+     * computes the tokens from the values returned by tokenValue for the first and last row.
+     */
+    private <S> CursorPaginationSlice<S> findCursorSlice(String operation, @Nullable Specification<T> spec, CursorPageable cursorPageable, Class<S> resultClass,
+                                                         @Nullable Projection<T, S> projection, BiFunction<S, String, Object> tokenValue) {
+        long start = System.nanoTime();
+        Preconditions.checkArgument(cursorPageable.getSort() != null, "Can't execute a cursor find without a sort");
+        Sort sort = getCursorSort(cursorPageable.getSort());
+        long sortFingerprint = getSortFingerprint(sort);
+        Long estimate = Strings.isNullOrEmpty(cursorPageable.getContinuationToken()) && cursorPageable.getCountMode() != CountMode.NONE
+                ? estimateCount(spec) : null;
+        FetchMode pageFetchMode = getFetchMode(cursorPageable);
+        // the window count is computed by the page query, the first page must be read anyway
+        boolean windowCount = estimate == null && Strings.isNullOrEmpty(cursorPageable.getContinuationToken())
+                && cursorPageable.getCountMode() == CountMode.WINDOW && isWindowCountSupported(projection, pageFetchMode);
+        Supplier<Long> totalElements = estimate != null ? () -> estimate : windowCount ? null : getTotalElements(spec, cursorPageable);
+        try {
+            ContinuationToken continuationToken = getContinuationToken(cursorPageable.getContinuationToken(), cursorPageable.getSort(), sort, sortFingerprint);
+            boolean backward = continuationToken != null && continuationToken.isPrevious();
+            // a previous token walks the index in the opposite direction, rows are flipped back afterwards
+            Sort querySort = backward ? reverse(sort) : sort;
+
+            List<S> results;
+            if (windowCount) {
+                List<Object[]> rows = getWindowCountRows(spec, querySort, projection, cursorPageable.getSize() + 1, pageFetchMode);
+                long total = rows.isEmpty() ? 0 : ((Number) rows.get(0)[rows.get(0).length - 1]).longValue();
+                totalElements = () -> total;
+                results = rows.stream().map(row -> toWindowCountResult(row, projection)).collect(toList());
+            } else {
+                results = getCursorResults(spec, querySort, continuationToken, resultClass, projection, cursorPageable.getSize() + 1,
+                        pageFetchMode);
+            }
+            boolean hasMore = results.size() > cursorPageable.getSize();
+
+            if (hasMore) {
+                results = results.subList(0, results.size() - 1);
+            }
+            if (backward) {
+                results = Lists.reverse(results);
+            }
+
+            String nextToken = null;
+            String previousToken = null;
+            if (!results.isEmpty()) {
+                if (backward || hasMore) {
+                    nextToken = computeToken(Iterables.getLast(results), false, sort, sortFingerprint, tokenValue);
+                }
+                if (backward ? hasMore : continuationToken != null) {
+                    previousToken = computeToken(results.get(0), true, sort, sortFingerprint, tokenValue);
+                }
+            }
+
+            metrics.recordQuery(operation, getDomainClass(), resultClass, continuationToken == null ? CursorPaginationMetrics.Page.FIRST : CursorPaginationMetrics.Page.CONTINUATION,
+                    cursorPageable.getSize(), results.size(), System.nanoTime() - start);
+            return new CursorPaginationSlice<>(results, getSize(cursorPageable, totalElements), nextToken, previousToken, totalElements,
+                    cursorPageable.getCountLimit(), estimate != null);
+        } catch (RuntimeException e) {
+            // the page is lost, so is the total number of elements counted in parallel
+            if (totalElements instanceof AsyncCount) {
+                ((AsyncCount) totalElements).cancel();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the {@link FetchMode} requested by the given {@link CursorPageable}, the repository one by default.
+     */
+    private FetchMode getFetchMode(CursorPageable cursorPageable) {
+        FetchMode requested = cursorPageable.getFetchMode();
+        return requested == null || requested == FetchMode.DEFAULT ? fetchMode : requested;
+    }
+
+    /**
+     * Executes the cursor page query, through a {@link StatelessSession} sharing the connection of the current session
+     * for {@link FetchMode#STATELESS}.
+     */
+    private <S> List<S> getCursorResults(@Nullable Specification<T> spec, Sort sort, @Nullable ContinuationToken continuationToken, Class<S> resultClass,
+                                         @Nullable Projection<T, S> projection, int maxResults, FetchMode fetchMode) {
+        if (fetchMode != FetchMode.STATELESS) {
+            return applyFetchMode(getCursorQuery(spec, sort, continuationToken, resultClass, projection), fetchMode, maxResults).getResultList();
+        }
+        QueryTemplate<S> template = createQueryTemplate(spec, sort, resultClass, getCursorSelection(projection), getKeysetSize(continuationToken),
+                getNullValues(continuationToken));
+        if (!TransactionSynchronizationManager.hasResource(em.getEntityManagerFactory())) {
+            // no EntityManager bound to the thread, the stateless session reads on a connection of its own
+            try (StatelessSession statelessSession = em.getEntityManagerFactory().unwrap(SessionFactory.class).openStatelessSession()) {
+                return getStatelessResults(statelessSession, template, spec, sort, continuationToken, projection, maxResults, fetchMode);
+            }
+        }
+        // the stateless session shares the connection of the bound EntityManager, and so its transaction
+        Session session = em.unwrap(Session.class);
+        return session.doReturningWork(connection -> {
+            try (StatelessSession statelessSession = session.getSessionFactory().withStatelessOptions().connection(connection).openStatelessSession()) {
+                return getStatelessResults(statelessSession, template, spec, sort, continuationToken, projection, maxResults, fetchMode);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S> List<S> getStatelessResults(StatelessSession statelessSession, QueryTemplate<S> template, @Nullable Specification<T> spec,
+                                            Sort sort, @Nullable ContinuationToken continuationToken, @Nullable Projection<T, S> projection,
+                                            int maxResults, FetchMode fetchMode) {
+        TypedQuery<S> query = applyTupleTransformer(statelessSession.createQuery(template.hql, (Class<S>) template.resultType), template.tupleTransformer);
+        bindQueryTemplate(applyRepositoryMethodMetadata(query, projection == null), template, spec, sort, continuationToken);
+        return applyFetchMode(query, fetchMode, maxResults).getResultList();
+    }
+
+    /**
+     * Returns whether the {@link CountMode#WINDOW} count can be selected together with the given projection, other
+     * projections and stateless pages execute the count query.
+     */
+    private static boolean isWindowCountSupported(@Nullable Projection<?, ?> projection, FetchMode fetchMode) {
+        return fetchMode != FetchMode.STATELESS && (projection == null || projection instanceof ClassProjection);
+    }
+
+    /**
+     * Executes the first cursor page query selecting the entity, or the values of the {@link ClassProjection}, followed
+     * by the {@code count(*) over()} window of the total number of elements.
+     */
+    private <S> List<Object[]> getWindowCountRows(@Nullable Specification<T> spec, Sort sort, @Nullable Projection<T, S> projection,
+                                                  int maxResults, FetchMode fetchMode) {
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) em.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<T> root = query.from(getDomainClass());
+
+        List<Selection<?>> selections = new ArrayList<>();
+        if (projection == null) {
+            selections.add(root);
+        } else {
+            selections.addAll(Arrays.asList(((ClassProjection<T, S>) projection).getPaths(root)));
+        }
+        selections.add(cb.count(root.get(entityInformation.getRequiredIdAttribute()), cb.createWindow()));
+        query.multiselect(selections);
+
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (sort.isSorted()) {
+            query.orderBy(getOrders(sort, root, cb));
+        }
+        return applyFetchMode(bindTemplateParameters(applyRepositoryMethodMetadata(em.createQuery(query), false), spec), fetchMode, maxResults).getResultList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <S> S toWindowCountResult(Object[] row, @Nullable Projection<?, S> projection) {
+        if (projection == null) {
+            return (S) row[0];
+        }
+        return ((ClassProjection<?, S>) projection).newInstance(Arrays.copyOf(row, row.length - 1));
+    }
+
+    private static <S> TypedQuery<S> applyFetchMode(TypedQuery<S> query, FetchMode fetchMode, int maxResults) {
+        query.setMaxResults(maxResults);
+        if (fetchMode == FetchMode.READ_ONLY) {
+            query.setHint(HibernateHints.HINT_READ_ONLY, true);
+        }
+        if (fetchMode != FetchMode.MANAGED) {
+            query.setHint(HibernateHints.HINT_FETCH_SIZE, maxResults);
+        }
+        return query;
+    }
+
+    @Override
+    public Stream<T> streamAllBy(Specification<T> spec, CursorPageable cursorPageable) {
+        return streamAllBy(spec, cursorPageable, Runnable::run, 0);
+    }
+
+    @Override
+    public Stream<T> streamAllBy(Specification<T> spec, CursorPageable cursorPageable, Executor executor, int readAhead) {
+        CursorSliceIterator<T> slices = getSliceIterator(spec, cursorPageable, executor, readAhead);
+        return stream(new CursorPageIterator<>(slices, this::detach)).onClose(slices::close);
+    }
+
+    @Override
+    public Stream<CursorPaginationSlice<T>> streamSlicesBy(Specification<T> spec, CursorPageable cursorPageable, Executor executor, int readAhead) {
+        CursorSliceIterator<T> slices = getSliceIterator(spec, cursorPageable, executor, readAhead);
+        return stream(slices).onClose(slices::close);
+    }
+
+    @Override
+    public List<Specification<T>> findPartitions(Specification<T> spec, Sort sort, int partitions) {
+        Preconditions.checkArgument(sort != null && sort.isSorted(), "Can't partition without a sort");
+        Preconditions.checkArgument(partitions > 0, "Partitions must be positive");
+        Sort.Order order = sort.iterator().next();
+        List<Object> boundaries = getPartitionBoundaries(spec, order, partitions);
+        List<Specification<T>> result = new ArrayList<>(boundaries.size() + 1);
+        for (int i = 0; i <= boundaries.size(); i++) {
+            Object lower = i == 0 ? null : boundaries.get(i - 1);
+            Object upper = i == boundaries.size() ? null : boundaries.get(i);
+            result.add(Specification.where(spec).and(getRangeSpecification(order, lower, upper)));
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<T> parallelStreamAllBy(Specification<T> spec, CursorPageable cursorPageable, int partitions, Executor executor) {
+        Sort sort = cursorPageable.getSort();
+        Preconditions.checkArgument(cursorPageable.getContinuationToken() == null, "Can't execute a partitioned scan from a continuationToken");
+        Assert.notNull(executor, "Executor must not be null!");
+        int size = cursorPageable.getSize();
+        FetchMode fetchMode = cursorPageable.getFetchMode();
+        List<Iterator<CursorPaginationSlice<T>>> walks = findPartitions(spec, sort, partitions).stream()
+                .map(partition -> (Iterator<CursorPaginationSlice<T>>) new CursorSliceIterator<T>(null, withMethodMetadata(
+                        token -> detachContent(findAllBy(partition, CursorPageRequest.of(token, size, sort).withCountMode(CountMode.NONE).withFetchMode(fetchMode)))),
+                        Runnable::run, 0))
+                .collect(toList());
+        PartitionedSliceIterator<T> slices = new PartitionedSliceIterator<>(walks, task -> executor.execute(() -> runWithEntityManager(task)), 2 * walks.size());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new CursorPageIterator<>(slices, page -> {
+        }), Spliterator.NONNULL), false).onClose(slices::close);
+    }
+
+    /**
+     * Runs the given task with an {@link EntityManager} of its own, closed once the task completes, unless the
+     * current thread is already bound to one, e.g. by a transaction.
+     */
+    private void runWithEntityManager(Runnable task) {
+        EntityManagerFactory entityManagerFactory = em.getEntityManagerFactory();
+        if (TransactionSynchronizationManager.hasResource(entityManagerFactory)) {
+            task.run();
+            return;
+        }
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        try {
+            task.run();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            EntityManagerFactoryUtils.closeEntityManager(entityManager);
+        }
+    }
+
+    private CursorPaginationSlice<T> detachContent(CursorPaginationSlice<T> slice) {
+        if (!slice.getContent().isEmpty()) {
+            detach(slice.getContent());
+        }
+        return slice;
+    }
+
+    private CursorSliceIterator<T> getSliceIterator(Specification<T> spec, CursorPageable cursorPageable, Executor executor, int readAhead) {
         Sort sort = cursorPageable.getSort();
         Preconditions.checkArgument(sort != null, "Can't execute a cursor find without a sort");
-        String hash = getHash(cursorPageable);
-        spec = enrichSpecificationWithContinuationToken(spec, sort, cursorPageable.getContinuationToken(), hash);
+        Preconditions.checkArgument(readAhead >= 0, "ReadAhead must not be negative");
+        Assert.notNull(executor, "Executor must not be null!");
+        int size = cursorPageable.getSize();
+        FetchMode fetchMode = cursorPageable.getFetchMode();
+        return new CursorSliceIterator<>(cursorPageable.getContinuationToken(), withMethodMetadata(
+                token -> findAllBy(spec, CursorPageRequest.of(token, size, sort).withCountMode(CountMode.NONE).withFetchMode(fetchMode))), executor, readAhead);
+    }
 
-        TypedQuery<T> query = getQuery(spec, sort);
-        query.setMaxResults(cursorPageable.getSize() + 1);
-        List<T> results = query.getResultList();
-        boolean hasNext = results.size() > cursorPageable.getSize();
-        String nextToken = null;
+    /**
+     * Returns the boundaries of the leading sort property splitting the entities matching the given
+     * {@link Specification} into partitions, in the order of the sort. Numeric and temporal properties are split into
+     * ranges of the same width between their minimum and maximum, read by a single aggregate query, other properties
+     * into ranges of about the same size sampled with offset queries.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<Object> getPartitionBoundaries(@Nullable Specification<T> spec, Sort.Order order, int partitions) {
+        if (partitions == 1) {
+            return Collections.emptyList();
+        }
+        Object[] range = getProjectionQuery(spec, Sort.unsorted(), Object[].class, (root, cb) -> {
+            Expression path = getSortExpression(root, order.getProperty());
+            return cb.array(cb.least(path), cb.greatest(path));
+        }).getSingleResult();
+        if (range[0] == null || range[1] == null) {
+            return Collections.emptyList();
+        }
+        List<Object> boundaries = RangeInterpolator.interpolate(range[0], range[1], partitions);
+        if (boundaries == null) {
+            return getSampledPartitionBoundaries(spec, order, partitions);
+        }
+        return order.isDescending() ? Lists.reverse(boundaries) : boundaries;
+    }
 
-        if (hasNext) {
-            results = results.subList(0, results.size() - 1);
-            nextToken = computeNextToken(results, sort, hash);
+    /**
+     * Samples the boundaries of the leading sort property at evenly spaced offsets of the entities matching the given
+     * {@link Specification}. Every sample scans the rows before its offset, so it's used only when the property
+     * values can't be interpolated.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object> getSampledPartitionBoundaries(@Nullable Specification<T> spec, Sort.Order order, int partitions) {
+        long total = countElements(spec);
+        TypedQuery<Object> query = getProjectionQuery(spec, Sort.by(order), Object.class, (root, cb) -> (Expression<Object>) getSortExpression(root, order.getProperty()));
+        List<Object> boundaries = new ArrayList<>(partitions - 1);
+        for (int i = 1; i < partitions; i++) {
+            // total / partitions * i + total % partitions * i / partitions, without overflowing total * i
+            long offset = total / partitions * i + total % partitions * i / partitions;
+            if (offset == 0) {
+                continue;
+            }
+            if (offset > Integer.MAX_VALUE) {
+                break;
+            }
+            query.setFirstResult((int) offset).setMaxResults(1);
+            query.getResultList().stream()
+                    .filter(value -> value != null && !boundaries.contains(value))
+                    .forEach(boundaries::add);
         }
+        return boundaries;
+    }
 
-        return new CursorPaginationSlice(results, getSize(spec, cursorPageable), nextToken);
+    /**
+     * Builds the predicate {@code lower <= a < upper} on the given order, entities with a null value belong to the
+     * range without lower bound.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Nullable
+    private Specification<T> getRangeSpecification(Sort.Order order, @Nullable Object lower, @Nullable Object upper) {
+        if (lower == null && upper == null) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            Expression path = getSortExpression(root, order.getProperty());
+            boolean descending = order.getDirection() == Sort.Direction.DESC;
+            if (lower == null) {
+                return cb.or(cb.isNull(path), descending ? cb.greaterThan(path, (Comparable) upper) : cb.lessThan(path, (Comparable) upper));
+            }
+            Predicate range = descending ? cb.lessThanOrEqualTo(path, (Comparable) lower) : cb.greaterThanOrEqualTo(path, (Comparable) lower);
+            if (upper != null) {
+                range = cb.and(range, descending ? cb.greaterThan(path, (Comparable) upper) : cb.lessThan(path, (Comparable) upper));
+            }
+            return range;
+        };
+    }
+
+    private static <S> Stream<S> stream(Iterator<S> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
     }
 
     @Override
@@ -107,7 +892,8 @@ public class CustomRepositoryImpl<T, ID extends Serializable> extends SimpleJpaR
 
     @Override
     public <S> List<S> findAllProjection(Specification<T> spec, Class<S> projectionClass, Projection<T, S> projection) {
-        return getProjectionQuery(spec, Sort.unsorted(), projectionClass, projection).getResultList();
+        return recordQuery("findAllProjection", projectionClass, null,
+                () -> getProjectionQuery(spec, Sort.unsorted(), projectionClass, projection).getResultList());
     }
 
     @Override
@@ -117,12 +903,14 @@ public class CustomRepositoryImpl<T, ID extends Serializable> extends SimpleJpaR
 
     @Override
     public <S> List<S> findAllProjection(Specification<T> spec, Pageable pageable, Class<S> projectionClass, Projection<T, S> projection) {
-        TypedQuery<S> query = getProjectionQuery(spec, pageable, projectionClass, projection);
-        if (pageable.isPaged()) {
-            query.setFirstResult((int) pageable.getOffset());
-            query.setMaxResults(pageable.getPageSize());
-        }
-        return query.getResultList();
+        return recordQuery("findAllProjection", projectionClass, pageable, () -> {
+            TypedQuery<S> query = getProjectionQuery(spec, pageable, projectionClass, projection);
+            if (pageable.isPaged()) {
+                query.setFirstResult((int) pageable.getOffset());
+                query.setMaxResults(pageable.getPageSize());
+            }
+            return query.getResultList();
+        });
     }
 
     @Override
@@ -132,7 +920,22 @@ public class CustomRepositoryImpl<T, ID extends Serializable> extends SimpleJpaR
 
     @Override
     public <S> List<S> findAllProjection(Specification<T> spec, Sort sort, Class<S> projectionClass, Projection<T, S> projection) {
-        return getProjectionQuery(spec, sort, projectionClass, projection).getResultList();
+        return recordQuery("findAllProjection", projectionClass, null,
+                () -> getProjectionQuery(spec, sort, projectionClass, projection).getResultList());
+    }
+
+    @Override
+    public <S> CursorPaginationSlice<S> findAllProjection(Specification<T> spec, CursorPageable cursorPageable, Class<S> projectionClass) {
+        return findAllProjection(spec, cursorPageable, projectionClass, getProjection(projectionClass));
+    }
+
+    @Override
+    public <S> CursorPaginationSlice<S> findAllProjection(Specification<T> spec, CursorPageable cursorPageable, Class<S> projectionClass, Projection<T, S> projection) {
+        Assert.notNull(projection, "Projection must not be null!");
+        Preconditions.checkArgument(cursorPageable.getSort() != null, "Can't execute a cursor find without a sort");
+        checkProjectionSelectsSort(projectionClass, projection, cursorPageable.getSort());
+        return findCursorSlice("findAllProjection", spec, cursorPageable, projectionClass, projection,
+                (item, propertyName) -> getProjectionPropertyAccessor(projectionClass, projection, propertyName).getValue(item));
     }
 
     @Override
@@ -141,16 +944,206 @@ public class CustomRepositoryImpl<T, ID extends Serializable> extends SimpleJpaR
     }
 
     public <S> Page<S> findAllProjectionPaged(Specification<T> spec, Pageable pageable, Class<S> projectionClass, Projection<T, S> projection) {
+        long start = System.nanoTime();
         Class<T> domainClass = getDomainClass();
         TypedQuery<S> query = getProjectionQuery(spec, pageable, projectionClass, projection);
-        return pageable.isUnpaged() ? new PageImpl<>(query.getResultList())
+        Page<S> page = pageable.isUnpaged() ? new PageImpl<>(query.getResultList())
                 : readProjectionPage(query, domainClass, pageable, spec);
+        metrics.recordQuery("findAllProjectionPaged", domainClass, projectionClass, getMetricsPage(pageable),
+                pageable.isPaged() ? pageable.getPageSize() : 0, page.getNumberOfElements(), System.nanoTime() - start);
+        return page;
+    }
+
+    @Override
+    public <S> Slice<S> findAllProjectionSliced(Specification<T> spec, Pageable pageable, Class<S> projectionClass) {
+        return findAllProjectionSliced(spec, pageable, projectionClass, getProjection(projectionClass));
+    }
+
+    @Override
+    public <S> Slice<S> findAllProjectionSliced(Specification<T> spec, Pageable pageable, Class<S> projectionClass, Projection<T, S> projection) {
+        long start = System.nanoTime();
+        TypedQuery<S> query = getProjectionQuery(spec, pageable, projectionClass, projection);
+        Slice<S> slice = pageable.isUnpaged() ? new SliceImpl<>(query.getResultList()) : readProjectionSlice(query, pageable);
+        metrics.recordQuery("findAllProjectionSliced", getDomainClass(), projectionClass, getMetricsPage(pageable),
+                pageable.isPaged() ? pageable.getPageSize() : 0, slice.getNumberOfElements(), System.nanoTime() - start);
+        return slice;
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public List<ID> findAllIds(Specification<T> spec) {
-        return findAllProjection(spec, (Class<ID>) entityInformation.getIdType(), (root, cb) -> (Path<ID>) root.get(entityInformation.getRequiredIdAttribute()));
+        Class<ID> idType = (Class<ID>) entityInformation.getIdType();
+        return recordQuery("findAllIds", idType, null, () -> getProjectionQuery(spec, Sort.unsorted(), idType,
+                (root, cb) -> (Path<ID>) root.get(entityInformation.getRequiredIdAttribute())).getResultList());
+    }
+
+    @Override
+    public Stream<List<ID>> streamAllIds(Specification<T> spec, int chunkSize) {
+        Preconditions.checkArgument(chunkSize > 0, "ChunkSize must be positive");
+        Preconditions.checkArgument(tiebreakerProperty != null, "Can't walk the ids of " + getDomainClass() + " without a single comparable id");
+        return stream(new KeysetChunkIterator<ID>(withMethodMetadata(lastId -> findIdChunk(spec, lastId, chunkSize)), chunkSize));
+    }
+
+    @Override
+    public void findAllIds(Specification<T> spec, int chunkSize, Consumer<List<ID>> chunkConsumer) {
+        Assert.notNull(chunkConsumer, "Consumer must not be null!");
+        try (Stream<List<ID>> chunks = streamAllIds(spec, chunkSize)) {
+            chunks.forEach(chunkConsumer);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<long[]> streamAllLongIds(Specification<T> spec, int chunkSize) {
+        Preconditions.checkArgument(entityInformation.getIdType() == Long.class, "Can't walk the ids of " + getDomainClass() + " as long values");
+        return streamAllIds(spec, chunkSize).map(ids -> Longs.toArray((List<Long>) ids));
+    }
+
+    @Override
+    public void findAllLongIds(Specification<T> spec, int chunkSize, Consumer<long[]> chunkConsumer) {
+        Assert.notNull(chunkConsumer, "Consumer must not be null!");
+        try (Stream<long[]> chunks = streamAllLongIds(spec, chunkSize)) {
+            chunks.forEach(chunkConsumer);
+        }
+    }
+
+    /**
+     * Returns the ascending ids following lastId, or the first ones when it's {@literal null}, so that every chunk is
+     * a range scan of the id index.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<ID> findIdChunk(@Nullable Specification<T> spec, @Nullable ID lastId, int chunkSize) {
+        Class<ID> idType = (Class<ID>) entityInformation.getIdType();
+        Specification<T> chunkSpec = lastId == null ? spec
+                : Specification.where(spec).and((root, query, cb) -> cb.greaterThan((Expression) root.get(tiebreakerProperty), (Comparable) lastId));
+        return recordQuery("findAllIds", idType, null, () -> getProjectionQuery(chunkSpec, Sort.by(tiebreakerProperty), idType,
+                (root, cb) -> root.<ID>get(tiebreakerProperty)).setMaxResults(chunkSize).getResultList());
+    }
+
+    /**
+     * Executes the given query and notifies its duration and returned rows to the configured {@link CursorPaginationMetrics}.
+     */
+    private <S> List<S> recordQuery(String operation, Class<?> resultClass, @Nullable Pageable pageable, Supplier<List<S>> query) {
+        long start = System.nanoTime();
+        List<S> results = query.get();
+        int pageSize = pageable != null && pageable.isPaged() ? pageable.getPageSize() : 0;
+        metrics.recordQuery(operation, getDomainClass(), resultClass, getMetricsPage(pageable), pageSize, results.size(), System.nanoTime() - start);
+        return results;
+    }
+
+    private static CursorPaginationMetrics.Page getMetricsPage(@Nullable Pageable pageable) {
+        if (pageable == null || pageable.isUnpaged()) {
+            return CursorPaginationMetrics.Page.NONE;
+        }
+        return pageable.getOffset() == 0 ? CursorPaginationMetrics.Page.FIRST : CursorPaginationMetrics.Page.CONTINUATION;
+    }
+
+    /**
+     * Returns the number of entities estimated by the {@link CountEstimator}, or {@literal null} when there's no
+     * estimate. Only unfiltered queries are estimated, the statistics of a table can't tell how many rows match a
+     * {@link Specification}.
+     */
+    @Nullable
+    private Long estimateCount(@Nullable Specification<T> spec) {
+        if (spec != null || countEstimator == CountEstimator.NONE) {
+            return null;
+        }
+        long start = System.nanoTime();
+        Long estimate = countEstimator.estimate(em, getTableName());
+        metrics.recordCount(getDomainClass(), System.nanoTime() - start);
+        return estimate;
+    }
+
+    private String getTableName() {
+        String name = tableName;
+        if (name == null) {
+            name = ((AbstractEntityPersister) em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class).getMappingMetamodel()
+                    .getEntityDescriptor(getDomainClass())).getTableName();
+            tableName = name;
+        }
+        return name;
+    }
+
+    private long countElements(@Nullable Specification<T> spec) {
+        return getCachedCount(spec, 0, () -> {
+            long start = System.nanoTime();
+            long total = executeCountQuery(getCountQuery(spec, getDomainClass()));
+            metrics.recordCount(getDomainClass(), System.nanoTime() - start);
+            return total;
+        });
+    }
+
+    /**
+     * Returns the count cached for the given {@link Specification} and limit, executing the given count when it's
+     * missing or can't be cached.
+     */
+    private long getCachedCount(@Nullable Specification<T> spec, int limit, Supplier<Long> count) {
+        Cache<List<Object>, Long> cache = countCache;
+        // a transaction with pending writes must see them, the cache holds committed counts only
+        List<Object> fingerprint = cache == null || TransactionSynchronizationManager.hasResource(countCacheWriteKey) ? null
+                : getCountFingerprint(spec, limit);
+        if (fingerprint == null) {
+            return count.get();
+        }
+        Long cached = cache.getIfPresent(fingerprint);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = countCacheGeneration.get();
+        long total = count.get();
+        cache.put(fingerprint, total);
+        // a count overlapping an invalidation may have read the rows before the commit
+        if (countCacheGeneration.get() != generation) {
+            cache.invalidate(fingerprint);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the key identifying the count of the given {@link Specification}, {@literal null} when its predicate
+     * can't be identified: only a {@link TemplateSpecification} exposes a key and values that can be compared without
+     * building its predicate.
+     */
+    @Nullable
+    private List<Object> getCountFingerprint(@Nullable Specification<T> spec, int limit) {
+        if (spec == null) {
+            return Arrays.asList(getDomainClass(), NO_SPECIFICATION_TEMPLATE, Collections.emptyMap(), limit);
+        }
+        if (spec instanceof TemplateSpecification) {
+            TemplateSpecification<T> templateSpec = (TemplateSpecification<T>) spec;
+            return Arrays.asList(getDomainClass(), templateSpec.getTemplateKey(), new TreeMap<>(templateSpec.getParameters()), limit);
+        }
+        return null;
+    }
+
+    /**
+     * Counts the entities matching the given {@link Specification} up to limit + 1 with a single
+     * {@code select count(*) from (select id ... fetch first limit + 1 rows only)} query, so that the database stops
+     * scanning after limit + 1 rows and returns only the count.
+     */
+    @SuppressWarnings("unchecked")
+    private long countElements(@Nullable Specification<T> spec, int limit) {
+        return getCachedCount(spec, limit, () -> {
+            long start = System.nanoTime();
+            HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) em.getCriteriaBuilder();
+            JpaCriteriaQuery<Long> query = cb.createQuery(Long.class);
+            JpaSubQuery<Object> ids = query.subquery(Object.class);
+            Root<T> root = ids.from(getDomainClass());
+            Path<Object> id = (Path<Object>) root.get(entityInformation.getRequiredIdAttribute());
+            id.alias("id");
+            ids.select(id);
+            // the specification sees the count query, its predicates restrict the rows of the subquery
+            ofNullable(spec).map(s -> s.toPredicate(root, query, cb))
+                    .ifPresent(ids::where);
+            ids.fetch(limit + 1);
+            JpaDerivedRoot<Object> limited = query.from(ids);
+            query.select(cb.count(limited.get("id")));
+            TypedQuery<Long> countQuery = bindTemplateParameters(em.createQuery(query), spec);
+            getQueryHintsForCount().forEach(countQuery::setHint);
+            long total = countQuery.getSingleResult();
+            metrics.recordCount(getDomainClass(), System.nanoTime() - start);
+            return total;
+        });
     }
 
     protected <S> TypedQuery<S> getProjectionQuery(@Nullable Specification<T> spec, Pageable pageable, Class<S> projectionClass, Projection<T, S> projection) {
@@ -160,20 +1153,66 @@ public class CustomRepositoryImpl<T, ID extends Serializable> extends SimpleJpaR
 
     protected <S> TypedQuery<S> getProjectionQuery(@Nullable Specification<T> spec, Sort sort, Class<S> projectionClass, Projection<T, S> projection) {
 
+        Object templateKey = projection instanceof ClassProjection ? getTemplateKey(spec) : null;
+        if (templateKey != null) {
+            QueryTemplate<S> template = getQueryTemplate(Arrays.asList(PROJECTION_TEMPLATE, projectionClass, sort, 0, templateKey),
+                    () -> createQueryTemplate(spec, sort, projectionClass, projection, 0, new BitSet()));
+            return bindQueryTemplate(template, spec, sort, null);
+        }
+
         CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<S> query = cb.createQuery(projectionClass);
+        TupleTransformer<S> tupleTransformer = getTupleTransformer(projection);
+        CriteriaQuery<S> query = createCriteriaQuery(cb, projectionClass, tupleTransformer);
 
         Root<T> root = query.from(getDomainClass());
-        query.select(projection.toSelection(root, cb));
+        query.select(getSelection(projection, root, cb, tupleTransformer));
 
         ofNullable(spec).map(s -> s.toPredicate(root, query, cb))
                 .ifPresent(query::where);
 
-        if (sort.isSorted()) {
-            query.orderBy(toOrders(sort, root, cb));
+        if (sort.isSorted()) {
+            query.orderBy(getOrders(sort, root, cb));
+        }
+
+        return bindTemplateParameters(applyTupleTransformer(applyRepositoryMethodMetadata(em.createQuery(query), false), tupleTransformer), spec);
+    }
+
+    /**
+     * Returns the {@link TupleTransformer} creating the instances of a {@link ClassProjection} through its constructor
+     * invoker, {@literal null} when the projection is selected by a constructor expression.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private <S> TupleTransformer<S> getTupleTransformer(Projection<T, S> projection) {
+        if (!projectionConstructorInvokerEnabled || !(projection instanceof ClassProjection)) {
+            return null;
+        }
+        ClassProjection<T, S> classProjection = (ClassProjection<T, S>) projection;
+        return (tuple, aliases) -> classProjection.newInstance(tuple);
+    }
+
+    /**
+     * Creates a criteria query of the projection, of the selected array when a tupleTransformer creates the projection.
+     */
+    @SuppressWarnings("unchecked")
+    private static <S> CriteriaQuery<S> createCriteriaQuery(CriteriaBuilder cb, Class<S> resultClass, @Nullable TupleTransformer<S> tupleTransformer) {
+        return tupleTransformer == null ? cb.createQuery(resultClass) : (CriteriaQuery<S>) (CriteriaQuery<?>) cb.createQuery(Object[].class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S> Selection<S> getSelection(Projection<T, S> projection, Root<T> root, CriteriaBuilder cb, @Nullable TupleTransformer<S> tupleTransformer) {
+        if (tupleTransformer == null) {
+            return projection.toSelection(root, cb);
         }
+        return (Selection<S>) (Selection<?>) ((ClassProjection<T, S>) projection).toArraySelection(root, cb);
+    }
 
-        return applyRepositoryMethodMetadata(em.createQuery(query));
+    @SuppressWarnings("unchecked")
+    private static <S> TypedQuery<S> applyTupleTransformer(TypedQuery<S> query, @Nullable TupleTransformer<S> tupleTransformer) {
+        if (tupleTransformer == null) {
+            return query;
+        }
+        return ((org.hibernate.query.Query<S>) query.unwrap(org.hibernate.query.Query.class)).setTupleTransformer(tupleTransformer);
     }
 
     protected <S> Page<S> readProjectionPage(TypedQuery<S> query, final Class<T> domainClass, Pageable pageable, @Nullable Specification<T> spec) {
@@ -181,8 +1220,26 @@ public class CustomRepositoryImpl<T, ID extends Serializable> extends SimpleJpaR
             query.setFirstResult((int) pageable.getOffset());
             query.setMaxResults(pageable.getPageSize());
         }
-        return PageableExecutionUtils.getPage(query.getResultList(), pageable,
-                () -> executeCountQuery(getCountQuery(spec, domainClass)));
+        List<S> content = query.getResultList();
+        Long estimate = estimateCount(spec);
+        if (estimate != null) {
+            // the offset of the page is a lower bound of the total also when the statistics are stale
+            long total = Math.max(estimate, pageable.getOffset() + content.size());
+            return new EstimatedPage<>(content, pageable, total);
+        }
+        return PageableExecutionUtils.getPage(content, pageable, () -> countElements(spec));
+    }
+
+    /**
+     * Reads a {@link Slice} fetching one row more than the page size to know whether a next page exists, without any
+     * count query.
+     */
+    protected <S> Slice<S> readProjectionSlice(TypedQuery<S> query, Pageable pageable) {
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize() + 1);
+        List<S> content = query.getResultList();
+        boolean hasNext = content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
     }
 
     protected <S> TypedQuery<S> getProjectionQuery(@Nullable Specification<T> spec, Class<S> resultClass, Projection<T, S> projection, Pageable pageable) {
@@ -190,13 +1247,29 @@ public class CustomRepositoryImpl<T, ID extends Serializable> extends SimpleJpaR
         return getProjectionQuery(spec, sort, resultClass, projection);
     }
 
-    private <S> TypedQuery<S> applyRepositoryMethodMetadata(TypedQuery<S> query) {
+    /**
+     * Applies the lock mode and the query hints of the repository method like {@link SimpleJpaRepository} does for its
+     * queries, including the {@link EntityGraph} only when the query selects the entity.
+     */
+    private <S> TypedQuery<S> applyRepositoryMethodMetadata(TypedQuery<S> query, boolean entityResult) {
         CrudMethodMetadata metadata = super.getRepositoryMethodMetadata();
         if (metadata == null) {
             return query;
         }
         LockModeType type = metadata.getLockModeType();
-        return type == null ? query : query.setLockMode(type);
+        TypedQuery<S> toReturn = type == null ? query : query.setLockMode(type);
+        QueryHints queryHints = entityResult ? getQueryHints().withFetchGraphs(em) : getQueryHints();
+        queryHints.forEach(toReturn::setHint);
+        return toReturn;
+    }
+
+    /**
+     * Detaches the given entities from the persistence context when they are managed.
+     */
+    private void detach(List<T> entities) {
+        if (em.contains(entities.get(0))) {
+            entities.forEach(em::detach);
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -217,6 +1290,7 @@ public class CustomRepositoryImpl<T, ID extends Serializable> extends SimpleJpaR
     public static class ClassProjection<E, S> implements Projection<E, S> {
         private final Class<S> projectionClass;
         private final List<ProjectionSelection> projectionSelections;
+        private final MethodHandle constructorInvoker;
 
         public ClassProjection(Class<S> projectionClass) {
             this.projectionClass = projectionClass;
@@ -224,21 +1298,76 @@ public class CustomRepositoryImpl<T, ID extends Serializable> extends SimpleJpaR
             this.projectionSelections = Arrays.stream(constructor.getParameters())
                     .map(this::getProjectionSelection)
                     .collect(toList());
+            this.constructorInvoker = getConstructorInvoker(constructor);
         }
 
         @Override
         public Selection<S> toSelection(Root<E> root, CriteriaBuilder cb) {
-            return cb.construct(projectionClass, projectionSelections.stream()
-                    .map(pjSelection -> getPath(root, pjSelection.path))
-                    .toArray(Selection[]::new));
+            return cb.construct(projectionClass, getPaths(root));
+        }
+
+        /**
+         * Returns the selection of the constructor arguments as an array, to be turned into the projection by
+         * {@link #newInstance(Object[])}.
+         */
+        public Selection<Object[]> toArraySelection(Root<E> root, CriteriaBuilder cb) {
+            return cb.array(getPaths(root));
+        }
+
+        /**
+         * Creates the projection from the values selected by {@link #toArraySelection(Root, CriteriaBuilder)}.
+         */
+        @SuppressWarnings("unchecked")
+        public S newInstance(Object[] values) {
+            try {
+                return (S) (Object) constructorInvoker.invokeExact(values);
+            } catch (Throwable e) {
+                throw new CursorPaginationException("Unable to create projection " + projectionClass, e);
+            }
+        }
+
+        private Selection<?>[] getPaths(Root<E> root) {
+            Selection<?>[] paths = new Selection<?>[projectionSelections.size()];
+            for (int i = 0; i < paths.length; i++) {
+                paths[i] = getPath(root, projectionSelections.get(i).path);
+            }
+            return paths;
+        }
+
+        /**
+         * Returns the constructor bound to a {@link MethodHandle} taking its arguments as an array.
+         */
+        private MethodHandle getConstructorInvoker(Constructor<?> constructor) {
+            try {
+                ReflectionUtils.makeAccessible(constructor);
+                return MethodHandles.lookup().unreflectConstructor(constructor)
+                        .asSpreader(Object[].class, constructor.getParameterCount())
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+            } catch (IllegalAccessException e) {
+                throw new CursorPaginationException("Unable to access the constructor of projection " + projectionClass, e);
+            }
         }
 
         private ProjectionSelection getProjectionSelection(Parameter parameter) {
             SelectPath selectPath = parameter.getAnnotation(SelectPath.class);
             if (selectPath != null) {
-                return new ProjectionSelection(parameter.getType(), selectPath.value().split("\\."));
+                return new ProjectionSelection(parameter.getName(), parameter.getType(), selectPath.value().split("\\."));
+            }
+            return new ProjectionSelection(parameter.getName(), parameter.getType(), parameter.getName());
+        }
+
+        /**
+         * Returns the name of the constructor parameter selecting the given property path, {@literal null} when no
+         * parameter selects it.
+         */
+        @Nullable
+        public String getParameterName(String propertyPath) {
+            for (ProjectionSelection projectionSelection : projectionSelections) {
+                if (String.join(".", projectionSelection.path).equals(propertyPath)) {
+                    return projectionSelection.name;
+                }
             }
-            return new ProjectionSelection(parameter.getType(), parameter.getName());
+            return null;
         }
 
         private Path<?> getPath(Root<E> root, String[] pathArray) {
@@ -269,164 +1398,675 @@ public class CustomRepositoryImpl<T, ID extends Serializable> extends SimpleJpaR
         }
 
         public static class ProjectionSelection {
+            private final String name;
             private final Class<?> type;
             private final String[] path;
 
             public ProjectionSelection(Class<?> type, String... path) {
+                this(String.join(".", path), type, path);
+            }
+
+            public ProjectionSelection(String name, Class<?> type, String... path) {
+                this.name = name;
                 this.type = type;
                 this.path = path;
             }
         }
     }
 
-    protected ContinuationTokenInfo decrypt(String strToDecrypt) {
-        try {
-            byte[] decrypted = Base64.getUrlDecoder().decode(strToDecrypt);
-            String token = new String(decrypted);
-            String[] splitToken = token.split(UNSERSCORE);
-            String prevSortHashed = splitToken[0];
-            Map<String, String> continuationToken = Splitter.on(SEMICOLON).withKeyValueSeparator(EQUAL).split(splitToken[1]);
-            return new ContinuationTokenInfo(prevSortHashed, continuationToken);
-        } catch (Exception e) {
-            throw new CursorPaginationException("Unable to decrypt " + strToDecrypt, e);
+    /**
+     * Returns the given sort followed by the id attribute when it doesn't already sort by id, so that the keyset
+     * predicate always has a total order. The id takes the direction of the last order, which keeps the sort aligned
+     * with a {@code (column, id)} index and the row value predicate usable.
+     */
+    protected Sort getCursorSort(Sort sort) {
+        if (tiebreakerProperty == null || sort.getOrderFor(tiebreakerProperty) != null) {
+            return sort;
         }
+        Sort.Direction direction = sort.isSorted() ? Iterables.getLast(sort).getDirection() : Sort.Direction.ASC;
+        return sort.and(Sort.by(direction, tiebreakerProperty));
     }
 
-    protected String encrypt(String hash, Map<String, String> mapToEncrypt) {
-        try {
-            String enc = Joiner.on(SEMICOLON).withKeyValueSeparator(EQUAL).join(mapToEncrypt);
-            return Base64.getUrlEncoder().encodeToString((hash + UNSERSCORE + enc).getBytes());
-        } catch (Exception e) {
-            throw new CursorPaginationException("Unable to encrypt " + mapToEncrypt, e);
+    /**
+     * Returns the id attribute appended to cursor sorts, {@literal null} for composite or non comparable ids.
+     */
+    @Nullable
+    private static String getTiebreakerProperty(JpaEntityInformation<?, ?> entityInformation) {
+        if (entityInformation.hasCompositeId()) {
+            return null;
+        }
+        SingularAttribute<?, ?> idAttribute = entityInformation.getIdAttribute();
+        if (idAttribute == null || !Comparable.class.isAssignableFrom(ClassUtils.resolvePrimitiveIfNecessary(idAttribute.getJavaType()))) {
+            return null;
         }
+        return idAttribute.getName();
     }
 
-    protected String getHash(CursorPageable pageRequest) {
-        return DigestUtils.md5DigestAsHex(pageRequest.getSort().toString().getBytes());
+    /**
+     * Returns the fingerprint of the given sort, stored in the continuationToken to detect a sort change.
+     */
+    protected long getSortFingerprint(Sort sort) {
+        return SortUtil.fingerprint(sort);
     }
 
-    protected Comparable getStartValue(String propertyName, String value) {
-        Field field = ReflectionUtils.findField(getDomainClass(), propertyName);
-        Preconditions.checkArgument(field != null, "Field not found by reflection fieldName: " + propertyName + " class:" + getDomainClass());
-
-        Object startingPoint = ConverterUtil.convert(value, field.getType());
-        Preconditions.checkArgument(Comparable.class.isAssignableFrom(startingPoint.getClass()), "Cannot use a non comparable field");
+    /**
+     * Returns the comparable value of the given property from its continuationToken value.
+     */
+    @Nullable
+    protected Comparable getStartValue(String propertyName, @Nullable Object value) {
+        if (value == null) {
+            return null;
+        }
+        SortPropertyAccessor accessor = getSortPropertyAccessor(propertyName);
+        Object startingPoint = value instanceof String ? accessor.parse((String) value) : value;
+        Preconditions.checkArgument(ClassUtils.isAssignableValue(accessor.getType(), startingPoint), "Invalid continuationToken value for field " + propertyName);
+        Preconditions.checkArgument(startingPoint instanceof Comparable, "Cannot use a non comparable field");
         return (Comparable) startingPoint;
     }
 
-    protected String getLastValue(T lastItem, String propertyName) {
+    /**
+     * Returns the value of the given property of the item, to store in the continuationToken.
+     */
+    protected Object getLastValue(T lastItem, String propertyName) {
+        return getSortPropertyAccessor(propertyName).getValue(lastItem);
+    }
+
+    /**
+     * Returns the {@link SortPropertyAccessor} of the given property, resolved once per repository.
+     */
+    protected SortPropertyAccessor getSortPropertyAccessor(String propertyName) {
+        SortPropertyAccessor accessor = sortPropertyAccessors.get(propertyName);
+        if (accessor == null) {
+            accessor = sortPropertyAccessors.computeIfAbsent(propertyName, name -> SortPropertyAccessor.of(getDomainClass(), name));
+        }
+        return accessor;
+    }
+
+    /**
+     * Returns the query of a cursor page selecting the given projection, or the entity when it's {@literal null},
+     * reusing the cached template when the specification allows it.
+     */
+    @SuppressWarnings("unchecked")
+    private <S> TypedQuery<S> getCursorQuery(@Nullable Specification<T> spec, Sort sort, @Nullable ContinuationToken continuationToken,
+                                             Class<S> resultClass, @Nullable Projection<T, S> projection) {
+        Object templateKey = projection == null || projection instanceof ClassProjection ? getTemplateKey(spec) : null;
+        if (templateKey == null) {
+            Specification<T> cursorSpec = enrichSpecificationWithContinuationToken(spec, sort, continuationToken);
+            // the enriched specification hides the template parameters, they're bound from the original one
+            return bindTemplateParameters(projection == null ? (TypedQuery<S>) (TypedQuery<?>) getQuery(cursorSpec, sort)
+                    : getProjectionQuery(cursorSpec, sort, resultClass, projection), spec);
+        }
+        int keysetSize = getKeysetSize(continuationToken);
+        BitSet nullValues = getNullValues(continuationToken);
+        QueryTemplate<S> template = getQueryTemplate(Arrays.asList(CURSOR_TEMPLATE, resultClass, sort, keysetSize, nullValues, keysetPredicateStrategy, templateKey),
+                () -> createQueryTemplate(spec, sort, resultClass, getCursorSelection(projection), keysetSize, nullValues));
+        return bindQueryTemplate(template, spec, sort, continuationToken);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S> Projection<T, S> getCursorSelection(@Nullable Projection<T, S> projection) {
+        return projection != null ? projection : (root, cb) -> (Selection<S>) (Selection<?>) root;
+    }
+
+    private static int getKeysetSize(@Nullable ContinuationToken continuationToken) {
+        return continuationToken == null ? 0 : continuationToken.size();
+    }
+
+    /**
+     * Returns the positions of the null continuationToken values, which are matched with null predicates instead of parameters.
+     */
+    private static BitSet getNullValues(@Nullable ContinuationToken continuationToken) {
+        int keysetSize = getKeysetSize(continuationToken);
+        BitSet nullValues = new BitSet(keysetSize);
+        for (int i = 0; i < keysetSize; i++) {
+            nullValues.set(i, continuationToken.getValue(i) == null);
+        }
+        return nullValues;
+    }
+
+    /**
+     * Fails before any query when the projection doesn't select a property of the cursor sort, the id tiebreaker
+     * appended to the requested sort included, since the continuationToken is read from the projection.
+     */
+    private void checkProjectionSelectsSort(Class<?> projectionClass, Projection<T, ?> projection, Sort sort) {
+        for (Sort.Order order : getCursorSort(sort)) {
+            String property = order.getProperty();
+            try {
+                getProjectionPropertyAccessor(projectionClass, projection, property);
+            } catch (IllegalArgumentException e) {
+                if (sort.getOrderFor(property) != null) {
+                    throw e;
+                }
+                throw new IllegalArgumentException("Projection " + projectionClass + " must select the id " + property
+                        + ", appended to the sort as tiebreaker of the rows with the same sort values", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the {@link SortPropertyAccessor} reading the given sort property from a projection. A {@link ClassProjection}
+     * exposes it through the field named as the constructor parameter selecting the property, other projections through
+     * a field with the property name.
+     */
+    private SortPropertyAccessor getProjectionPropertyAccessor(Class<?> projectionClass, Projection<T, ?> projection, String propertyName) {
+        if (projectionClass == getDomainClass()) {
+            return getSortPropertyAccessor(propertyName);
+        }
+        return projectionPropertyAccessors.computeIfAbsent(Arrays.asList(projectionClass, propertyName), key -> {
+            String fieldName = projection instanceof ClassProjection ? ((ClassProjection<T, ?>) projection).getParameterName(propertyName) : propertyName;
+            Preconditions.checkArgument(fieldName != null, "Projection " + projectionClass + " doesn't select the sort property " + propertyName);
+            return SortPropertyAccessor.of(projectionClass, fieldName);
+        });
+    }
+
+    /**
+     * Returns the key of the query template for the given specification, {@literal null} when the query can't be cached.
+     */
+    @Nullable
+    private Object getTemplateKey(@Nullable Specification<T> spec) {
+        if (!queryTemplateCacheEnabled) {
+            return null;
+        }
+        if (spec == null) {
+            return NO_SPECIFICATION_TEMPLATE;
+        }
+        return spec instanceof TemplateSpecification ? ((TemplateSpecification<T>) spec).getTemplateKey() : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S> QueryTemplate<S> getQueryTemplate(List<Object> key, Callable<QueryTemplate<S>> loader) {
         try {
-            Field field = ReflectionUtils.findField(lastItem.getClass(), propertyName);
-            Preconditions.checkArgument(field != null, "Field not found by reflection fieldName: " + propertyName + " class:" + getDomainClass());
-            field.setAccessible(true);
-            Object objectValue = field.get(lastItem);
-            return (String) ConverterUtil.convert(objectValue, String.class);
-        } catch (IllegalAccessException e) {
-            throw new CursorPaginationException("Unable to get field from " + entityInformation.getJavaType() + " of name " + propertyName, e);
+            return (QueryTemplate<S>) queryTemplates.get(key, loader);
+        } catch (UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        } catch (ExecutionException e) {
+            throw new CursorPaginationException("Unable to create the query template " + key, e.getCause());
+        }
+    }
+
+    private <S> QueryTemplate<S> createQueryTemplate(@Nullable Specification<T> spec, Sort sort, Class<S> resultClass, Projection<T, S> projection,
+                                                     int keysetSize, BitSet nullValues) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        TupleTransformer<S> tupleTransformer = getTupleTransformer(projection);
+        CriteriaQuery<S> query = createCriteriaQuery(cb, resultClass, tupleTransformer);
+
+        Root<T> root = query.from(getDomainClass());
+        query.select(getSelection(projection, root, cb, tupleTransformer));
+
+        List<Predicate> predicates = new ArrayList<>();
+        ofNullable(spec).map(s -> s.toPredicate(root, query, cb))
+                .ifPresent(predicates::add);
+
+        List<String> keysetParameters = new ArrayList<>(keysetSize);
+        if (keysetSize > 0) {
+            List<Sort.Order> orders = sort.toList();
+            List<Expression<?>> keysetValues = new ArrayList<>(keysetSize);
+            for (int i = 0; i < keysetSize; i++) {
+                Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(getSortPropertyAccessor(orders.get(i).getProperty()).getType());
+                keysetParameters.add(nullValues.get(i) ? null : KEYSET_PARAMETER + i);
+                keysetValues.add(nullValues.get(i) ? null : cb.parameter(type, KEYSET_PARAMETER + i));
+            }
+            predicates.add(getKeysetPredicate(root, cb, orders, keysetValues));
+        }
+        query.where(predicates.toArray(new Predicate[0]));
+
+        if (sort.isSorted()) {
+            query.orderBy(getOrders(sort, root, cb));
         }
+        return new QueryTemplate<>(((SqmSelectStatement<S>) query).toHqlString(), query.getResultType(), keysetParameters, tupleTransformer);
     }
 
-    private Specification<T> enrichSpecificationWithContinuationToken(Specification<T> spec, Sort sort, String continuationToken, String currentSortHash) {
+    @SuppressWarnings("unchecked")
+    private <S> TypedQuery<S> bindQueryTemplate(QueryTemplate<S> template, @Nullable Specification<T> spec, Sort sort, @Nullable ContinuationToken continuationToken) {
+        TypedQuery<S> query = applyRepositoryMethodMetadata(em.createQuery(template.hql, (Class<S>) template.resultType),
+                template.resultType == getDomainClass());
+        return bindQueryTemplate(applyTupleTransformer(query, template.tupleTransformer), template, spec, sort, continuationToken);
+    }
+
+    /**
+     * Binds the specification parameters and the continuationToken values to the given query created from the template.
+     */
+    @SuppressWarnings("unchecked")
+    private <S> TypedQuery<S> bindQueryTemplate(TypedQuery<S> query, QueryTemplate<S> template, @Nullable Specification<T> spec, Sort sort,
+                                                @Nullable ContinuationToken continuationToken) {
+        bindTemplateParameters(query, spec);
+        List<Sort.Order> orders = sort.toList();
+        for (int i = 0; i < template.keysetParameters.size(); i++) {
+            String parameter = template.keysetParameters.get(i);
+            if (parameter != null) {
+                query.setParameter(parameter, getStartValue(orders.get(i).getProperty(), continuationToken.getValue(i)));
+            }
+        }
+        return query;
+    }
+
+    @Nullable
+    private ContinuationToken getContinuationToken(String continuationToken, Sort requestedSort, Sort sort, long currentSortFingerprint) {
         if (Strings.isNullOrEmpty(continuationToken)) {
-            return spec;
+            return null;
+        }
+        try {
+            ContinuationToken token = decodeContinuationToken(continuationToken, requestedSort, sort, currentSortFingerprint);
+            Preconditions.checkArgument(token.getSortFingerprint() == currentSortFingerprint, "Can't modify sort filter when using a continuationToken");
+            Preconditions.checkArgument(token.size() == sort.toList().size(), "ContinuationToken doesn't match the sort properties");
+            return token;
+        } catch (RuntimeException e) {
+            metrics.recordTokenDecodeFailure(getDomainClass());
+            throw e;
         }
-        ContinuationTokenInfo continuationTokenInfo = decrypt(continuationToken);
-        String prevHash = continuationTokenInfo.sortHash;
-        Map<String, String> continuationTokenMap = continuationTokenInfo.continuationToken;
-        Preconditions.checkArgument(currentSortHash.equals(prevHash), "Can't modify sort filter when using a continuationToken");
+    }
 
+    /**
+     * Decodes the continuationToken with the cursor sort, accepting the tokens issued for the requested sort before the
+     * id was appended as tiebreaker: the missing id value is decoded as {@literal null}, the start of the key, so that
+     * the page starts from the first row with the values of the token.
+     */
+    private ContinuationToken decodeContinuationToken(String continuationToken, Sort requestedSort, Sort sort, long currentSortFingerprint) {
+        if (requestedSort.equals(sort)) {
+            return continuationTokenCodec.decode(continuationToken, sort);
+        }
+        ContinuationToken token = null;
+        CursorPaginationException failure = null;
+        try {
+            token = continuationTokenCodec.decode(continuationToken, sort);
+            if (token.getSortFingerprint() == currentSortFingerprint) {
+                return token;
+            }
+        } catch (CursorPaginationException e) {
+            // the text format can't decode a token without the id value with the cursor sort
+            failure = e;
+        }
+        try {
+            ContinuationToken legacyToken = continuationTokenCodec.decode(continuationToken, requestedSort);
+            if (legacyToken.getSortFingerprint() == getSortFingerprint(requestedSort) && legacyToken.size() == sort.toList().size() - 1) {
+                Object[] values = new Object[legacyToken.size() + 1];
+                for (int i = 0; i < legacyToken.size(); i++) {
+                    values[i] = legacyToken.getValue(i);
+                }
+                return new ContinuationToken(currentSortFingerprint, legacyToken.isPrevious(), values);
+            }
+        } catch (CursorPaginationException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+        if (token == null) {
+            throw failure;
+        }
+        return token;
+    }
 
-        if (continuationTokenMap != null && !continuationTokenMap.isEmpty()) {
-            spec = ofNullable(spec).orElseGet(() -> (root, query, cb) -> cb.and());
-            spec = spec.and(getContinuationPredicate(continuationTokenMap, sort));
+    private Specification<T> enrichSpecificationWithContinuationToken(Specification<T> spec, Sort sort, @Nullable ContinuationToken continuationToken) {
+        if (continuationToken == null || continuationToken.size() == 0) {
+            return spec;
         }
-        return spec;
+        spec = ofNullable(spec).orElseGet(() -> (root, query, cb) -> cb.and());
+        return spec.and(getContinuationPredicate(continuationToken, sort));
     }
 
-    private Specification<T> getContinuationPredicate(Map<String, String> continuationToken, Sort sort) {
+    Specification<T> getContinuationPredicate(ContinuationToken continuationToken, Sort sort) {
         return (root, query, cb) -> {
 
-            List<Predicate> equalPredicates = new ArrayList<>();
-            List<Predicate> predicates = new ArrayList<>();
-
-            for (Map.Entry<String, String> entry : continuationToken.entrySet()) {
-                Sort.Order order = sort.getOrderFor(entry.getKey());
-                Predicate p;
-                Comparable startingValue = getStartValue(order.getProperty(), entry.getValue());
-                if (order.getDirection() == Sort.Direction.DESC) {
-                    p = cb.lessThan(root.get(entry.getKey()), startingValue);
+            List<Sort.Order> orders = sort.toList();
+            List<Expression<?>> startingValues = new ArrayList<>(orders.size());
+            for (int i = 0; i < orders.size(); i++) {
+                Comparable startingValue = getStartValue(orders.get(i).getProperty(), continuationToken.getValue(i));
+                if (startingValue == null) {
+                    startingValues.add(null);
                 } else {
-                    p = cb.greaterThan(root.get(entry.getKey()), startingValue);
+                    startingValues.add(cb instanceof HibernateCriteriaBuilder ? ((HibernateCriteriaBuilder) cb).value(startingValue) : cb.literal(startingValue));
                 }
+            }
+            return getKeysetPredicate(root, cb, orders, startingValues);
+        };
+    }
 
-                p = cb.and(p);
-
+    /**
+     * Builds the keyset predicate of the given orders, a {@literal null} starting value stands for a null column value.
+     */
+    private Predicate getKeysetPredicate(Root<T> root, CriteriaBuilder cb, List<Sort.Order> orders, List<Expression<?>> startingValues) {
+        if (useRowValuePredicate(orders, cb, startingValues)) {
+            return getRowValuePredicate(root, (HibernateCriteriaBuilder) cb, orders, startingValues);
+        }
+        return getExpandedPredicate(root, cb, orders, startingValues);
+    }
 
+    /**
+     * Builds the predicate: {@code a > x OR (b > y AND a = x) OR (c > z AND a = x AND b = y)}
+     * <p>
+     * Null values are placed according to the {@link Sort.NullHandling} of every order, see {@link #getAfterPredicate}.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate getExpandedPredicate(Root<T> root, CriteriaBuilder cb, List<Sort.Order> orders, List<Expression<?>> startingValues) {
+        List<Predicate> equalPredicates = new ArrayList<>();
+        List<Predicate> predicates = new ArrayList<>();
+
+        for (int i = 0; i < orders.size(); i++) {
+            Sort.Order order = orders.get(i);
+            Expression path = getSortExpression(root, order.getProperty());
+            Expression startingValue = startingValues.get(i);
+            Predicate p = getAfterPredicate(cb, order, path, startingValue);
+
+            if (p != null) {
                 if (!equalPredicates.isEmpty()) {
                     p = cb.and(p, cb.and(equalPredicates.toArray(new Predicate[0])));
                 }
-
-                equalPredicates.add(cb.equal(root.get(entry.getKey()), startingValue));
                 predicates.add(p);
             }
-            return predicates.stream().reduce(cb::or).orElse(cb.conjunction());
-        };
+
+            equalPredicates.add(startingValue == null ? cb.isNull(path) : cb.equal(path, startingValue));
+        }
+        return predicates.stream().reduce(cb::or).orElseGet(cb::disjunction);
     }
 
     /**
-     * token has the following structure:
-     * ${sortHash}_${continuationToken}
-     * <p>
-     * The prevSortHash: This field stores the sort hashed
-     * continuationToken: stores the field name and field value of the last retrieved element per each sorted property
-     * in this structure: ${fieldName1}=${fieldValue1};${fieldName2}=${fieldValue2};${fieldName3}=${fieldValue3}
+     * Builds the predicate matching the values sorted after the starting value by the given order:
+     * <ul>
+     *     <li>{@code a > x} for a non null value when nulls are sorted first or the column isn't nullable</li>
+     *     <li>{@code a > x OR a IS NULL} for a non null value when nulls are sorted last</li>
+     *     <li>{@code a IS NOT NULL} for a null value when nulls are sorted first or the column isn't nullable, where
+     *     the null value is the start of the key of a token issued before the id tiebreaker</li>
+     *     <li>{@literal null}, no value, for a null value when nulls are sorted last</li>
+     * </ul>
      */
-    private String computeNextToken(List<T> results, Sort sort, String currentSortHash) {
-        T item = Iterables.getLast(results);
-        Map<String, String> map = sort.stream().collect(Collectors.toMap(Sort.Order::getProperty, _sort -> getLastValue(item, _sort.getProperty())));
-        return encrypt(currentSortHash, map);
+    @Nullable
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate getAfterPredicate(CriteriaBuilder cb, Sort.Order order, Expression path, @Nullable Expression startingValue) {
+        boolean nullsLast = isNullsLast(order);
+        if (startingValue == null) {
+            return nullsLast && isNullable(order.getProperty()) ? null : cb.isNotNull(path);
+        }
+        Predicate p = order.getDirection() == Sort.Direction.DESC ? cb.lessThan(path, startingValue) : cb.greaterThan(path, startingValue);
+        return nullsLast && isNullable(order.getProperty()) ? cb.or(p, cb.isNull(path)) : p;
     }
 
-    private int getSize(Specification<T> specification, CursorPageable cursorPageable) {
-        if (!Strings.isNullOrEmpty(cursorPageable.getContinuationToken())) {
+    /**
+     * Builds the predicate: {@code (a, b, c) > (x, y, z)}
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate getRowValuePredicate(Root<T> root, HibernateCriteriaBuilder cb, List<Sort.Order> orders, List<Expression<?>> startingValues) {
+        SqmExpression<?>[] paths = new SqmExpression<?>[orders.size()];
+        SqmExpression<?>[] values = new SqmExpression<?>[orders.size()];
+        for (int i = 0; i < orders.size(); i++) {
+            paths[i] = (SqmExpression<?>) getSortExpression(root, orders.get(i).getProperty());
+            values[i] = (SqmExpression<?>) startingValues.get(i);
+        }
+        Expression left = ((NodeBuilder) cb).tuple(Object[].class, paths);
+        Expression right = ((NodeBuilder) cb).tuple(Object[].class, values);
+        return orders.get(0).getDirection() == Sort.Direction.DESC ? cb.lessThan(left, right) : cb.greaterThan(left, right);
+    }
+
+    private boolean useRowValuePredicate(List<Sort.Order> orders, CriteriaBuilder cb, List<Expression<?>> startingValues) {
+        if (orders.size() < 2 || !(cb instanceof HibernateCriteriaBuilder)) {
+            return false;
+        }
+        // a row value comparison with nulls is unknown, so it can't match null values nor nulls sorted after the values
+        if (startingValues.contains(null) || orders.stream().anyMatch(order -> isNullsLast(order) && isNullable(order.getProperty()))) {
+            return false;
+        }
+        Sort.Direction direction = orders.get(0).getDirection();
+        if (orders.stream().anyMatch(order -> order.getDirection() != direction)) {
+            return false;
+        }
+        switch (keysetPredicateStrategy) {
+            case ROW_VALUE:
+            case AUTO:
+                // Hibernate renders the row value where the dialect supports it and expands it otherwise
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns whether null values are sorted after the non null ones by the given order, resolving
+     * {@link Sort.NullHandling#NATIVE} with the null ordering of the database dialect.
+     */
+    private boolean isNullsLast(Sort.Order order) {
+        switch (order.getNullHandling()) {
+            case NULLS_FIRST:
+                return false;
+            case NULLS_LAST:
+                return true;
+            default:
+                switch (getDialectNullOrdering()) {
+                    case FIRST:
+                        return false;
+                    case LAST:
+                        return true;
+                    case SMALLEST:
+                        return order.getDirection() == Sort.Direction.DESC;
+                    default:
+                        return order.getDirection() == Sort.Direction.ASC;
+                }
+        }
+    }
+
+    private NullOrdering getDialectNullOrdering() {
+        NullOrdering nullOrdering = dialectNullOrdering;
+        if (nullOrdering == null) {
+            try {
+                Dialect dialect = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+                nullOrdering = dialect.getNullOrdering();
+            } catch (PersistenceException e) {
+                nullOrdering = NullOrdering.GREATEST;
+            }
+            dialectNullOrdering = nullOrdering;
+        }
+        return nullOrdering;
+    }
+
+    /**
+     * Returns whether the given sort property can hold null values according to the JPA metamodel, properties not
+     * found in the metamodel are considered nullable.
+     */
+    private boolean isNullable(String propertyName) {
+        Boolean nullable = nullableSortProperties.get(propertyName);
+        if (nullable == null) {
+            nullable = nullableSortProperties.computeIfAbsent(propertyName, name -> {
+                try {
+                    Attribute<? super T, ?> attribute = em.getMetamodel().managedType(getDomainClass()).getAttribute(name);
+                    if (!(attribute instanceof SingularAttribute)) {
+                        return true;
+                    }
+                    SingularAttribute<? super T, ?> singularAttribute = (SingularAttribute<? super T, ?>) attribute;
+                    return singularAttribute.isOptional() && !singularAttribute.isId() && !singularAttribute.getJavaType().isPrimitive();
+                } catch (IllegalArgumentException e) {
+                    return true;
+                }
+            });
+        }
+        return nullable;
+    }
+
+    /**
+     * Returns the expression of the given sort property, dotted properties are resolved through the joins of the query,
+     * created on first use and then shared with the other predicates and the order by clause.
+     */
+    private Expression<?> getSortExpression(From<?, ?> root, String propertyName) {
+        if (propertyName.indexOf('.') < 0) {
+            return root.get(propertyName);
+        }
+        Path<?> path = root;
+        List<String> segments = Splitter.on('.').splitToList(propertyName);
+        for (String segment : segments.subList(0, segments.size() - 1)) {
+            path = path instanceof From && isAssociation(path.getJavaType(), segment) ? getJoin((From<?, ?>) path, segment) : path.get(segment);
+        }
+        return path.get(Iterables.getLast(segments));
+    }
+
+    private boolean isAssociation(Class<?> type, String attributeName) {
+        try {
+            return em.getMetamodel().managedType(type).getAttribute(attributeName).isAssociation();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the join of the given attribute already created by the query, a new left join otherwise.
+     */
+    private static Join<?, ?> getJoin(From<?, ?> from, String attributeName) {
+        for (Join<?, ?> join : from.getJoins()) {
+            if (join.getAttribute().getName().equals(attributeName)) {
+                return join;
+            }
+        }
+        return from.join(attributeName, JoinType.LEFT);
+    }
+
+    /**
+     * Converts the given sort to criteria orders, applying the {@link Sort.NullHandling} of every order.
+     */
+    private static List<Order> getOrders(Sort sort, From<?, ?> root, CriteriaBuilder cb) {
+        List<Sort.Order> sortOrders = sort.toList();
+        Sort nativeSort = Sort.by(sortOrders.stream().map(order -> order.with(Sort.NullHandling.NATIVE)).collect(toList()));
+        List<Order> orders = new ArrayList<>(QueryUtils.toOrders(nativeSort, root, cb));
+        for (int i = 0; i < orders.size(); i++) {
+            Sort.NullHandling nullHandling = sortOrders.get(i).getNullHandling();
+            if (nullHandling != Sort.NullHandling.NATIVE) {
+                Preconditions.checkArgument(orders.get(i) instanceof JpaOrder, "Null handling requires Hibernate criteria queries");
+                orders.set(i, ((JpaOrder) orders.get(i)).nullPrecedence(nullHandling == Sort.NullHandling.NULLS_FIRST ? NullPrecedence.FIRST : NullPrecedence.LAST));
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * token stores the values of the last retrieved element per each sorted property, see {@link ContinuationTokenCodec}
+     */
+    String computeNextToken(List<T> results, Sort sort, long sortFingerprint) {
+        return computeToken(Iterables.getLast(results), false, sort, sortFingerprint, this::getLastValue);
+    }
+
+    /**
+     * token stores the values of the given boundary element per each sorted property, see {@link ContinuationTokenCodec}
+     */
+    private <S> String computeToken(S item, boolean previous, Sort sort, long sortFingerprint, BiFunction<S, String, Object> tokenValue) {
+        Object[] values = sort.stream().map(order -> tokenValue.apply(item, order.getProperty())).toArray();
+        return continuationTokenCodec.encode(new ContinuationToken(sortFingerprint, previous, values), sort);
+    }
+
+    /**
+     * Returns the given sort with every direction and null handling inverted.
+     */
+    private static Sort reverse(Sort sort) {
+        return Sort.by(sort.stream().map(order -> {
+            Sort.Order reversed = order.with(order.isAscending() ? Sort.Direction.DESC : Sort.Direction.ASC);
+            switch (order.getNullHandling()) {
+                case NULLS_FIRST:
+                    return reversed.nullsLast();
+                case NULLS_LAST:
+                    return reversed.nullsFirst();
+                default:
+                    return reversed;
+            }
+        }).collect(toList()));
+    }
+
+    private int getSize(CursorPageable cursorPageable, @Nullable Supplier<Long> totalElements) {
+        if (totalElements == null || (cursorPageable.getCountMode() != CountMode.EXACT && cursorPageable.getCountMode() != CountMode.WINDOW)) {
             return cursorPageable.getSize();
         }
-        return executeCountQuery(getCountQuery(specification, getDomainClass())).intValue();
+        long total = totalElements.get();
+        return (int) (cursorPageable.getCountLimit() > 0 ? Math.min(total, cursorPageable.getCountLimit()) : total);
+    }
+
+    /**
+     * Returns the supplier of the total number of elements according to the {@link CountMode}, or {@literal null} when
+     * the count must not be executed.
+     */
+    @Nullable
+    private Supplier<Long> getTotalElements(@Nullable Specification<T> specification, CursorPageable cursorPageable) {
+        if (!Strings.isNullOrEmpty(cursorPageable.getContinuationToken())) {
+            return null;
+        }
+        int countLimit = cursorPageable.getCountLimit();
+        Preconditions.checkArgument(countLimit >= 0, "CountLimit must not be negative");
+        Supplier<Long> count = countLimit > 0 ? () -> countElements(specification, countLimit) : () -> countElements(specification);
+        switch (cursorPageable.getCountMode()) {
+            case NONE:
+                return null;
+            case LAZY:
+                return Suppliers.memoize(withMethodMetadata(count)::get);
+            case ASYNC:
+                TransactionTemplate transactionTemplate = countTransactionTemplate;
+                Supplier<Long> boundCount = withMethodMetadata(count);
+                Supplier<Long> asyncCount = transactionTemplate == null ? boundCount : () -> transactionTemplate.execute(status -> boundCount.get());
+                return new AsyncCount(CompletableFuture.supplyAsync(asyncCount, countExecutor), getDomainClass());
+            default:
+                Long total = count.get();
+                return () -> total;
+        }
     }
 
-    private static class ContinuationTokenInfo {
+    /**
+     * Returns the given call bound to the metadata of the repository method being invoked, to run it once the
+     * invocation returned or on another thread.
+     */
+    private <R> Supplier<R> withMethodMetadata(Supplier<R> call) {
+        CapturedCrudMethodMetadata metadata = methodMetadata;
+        if (metadata == null) {
+            return call;
+        }
+        CrudMethodMetadata captured = metadata.capture();
+        return () -> metadata.call(captured, call);
+    }
 
-        /**
-         * This field stores the sort (hashed) used on a previous call
-         */
-        public final String sortHash;
+    /**
+     * Returns the given function bound to the metadata of the repository method being invoked, to apply it once the
+     * invocation returned or on another thread.
+     */
+    private <A, R> Function<A, R> withMethodMetadata(Function<A, R> function) {
+        CapturedCrudMethodMetadata metadata = methodMetadata;
+        if (metadata == null) {
+            return function;
+        }
+        CrudMethodMetadata captured = metadata.capture();
+        return argument -> metadata.call(captured, () -> function.apply(argument));
+    }
 
-        /**
-         * This map contains:
-         * - key: the property (field) name
-         * - value: last retrieved value, the starting point for the current call
-         * <p>
-         * Example:
-         * Given a table with the id: 1, 2, 3, 4, 5
-         * And assuming that the first request was: get the first 3 rows sorted by id asc
-         * In the second request, this map contains:
-         * key: id
-         * value: 3
-         */
-        public final Map<String, String> continuationToken;
+    /**
+     * Returns a bounded pool of daemon threads, so that blocking count queries never starve the common pool, never
+     * open more connections than the pool size nor prevent the JVM shutdown.
+     */
+    private static Executor createDefaultCountExecutor() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("cursor-pagination-count-%d").build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Total number of elements counted by the count executor, the count can be cancelled when the page query fails.
+     */
+    private static final class AsyncCount implements Supplier<Long> {
 
-        public ContinuationTokenInfo(String sortHash, Map<String, String> continuationToken) {
-            this.sortHash = sortHash;
-            this.continuationToken = continuationToken;
+        private final CompletableFuture<Long> future;
+
+        private final Class<?> domainClass;
+
+        private AsyncCount(CompletableFuture<Long> future, Class<?> domainClass) {
+            this.future = future;
+            this.domainClass = domainClass;
         }
 
         @Override
-        public String toString() {
-            return MoreObjects.toStringHelper(this)
-                    .add("sortHash", sortHash)
-                    .add("continuationToken", continuationToken)
-                    .toString();
+        public Long get() {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                throw new CursorPaginationException("Unable to count " + domainClass, e.getCause());
+            }
         }
-    }
 
+        /**
+         * Cancels the count, a count not started yet is never executed while a running one is discarded.
+         */
+        private void cancel() {
+            future.cancel(false);
+        }
+    }
 }
@@ -0,0 +1,53 @@
+package it.halfweight.spring.cursor.pagination.jpa.repository;
+
+import com.google.common.collect.Iterables;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * {@link Iterator} over ascending chunks of a single key, each chunk is fetched after the last key of the previous one
+ * only when it's requested. A chunk shorter than the chunk size ends the iteration without another query.
+ */
+class KeysetChunkIterator<K> implements Iterator<List<K>> {
+
+    private final Function<K, List<K>> chunkFetcher;
+    private final int chunkSize;
+    private List<K> next;
+    private K lastKey;
+    private boolean done;
+
+    /**
+     * @param chunkFetcher returns at most chunkSize keys following the given one, or the first keys when it's {@literal null}.
+     * @param chunkSize    the maximum number of keys of a chunk.
+     */
+    KeysetChunkIterator(Function<K, List<K>> chunkFetcher, int chunkSize) {
+        this.chunkFetcher = chunkFetcher;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            List<K> chunk = chunkFetcher.apply(lastKey);
+            done = chunk.size() < chunkSize;
+            if (!chunk.isEmpty()) {
+                lastKey = Iterables.getLast(chunk);
+                next = chunk;
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public List<K> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<K> chunk = next;
+        next = null;
+        return chunk;
+    }
+}
@@ -0,0 +1,24 @@
+package it.halfweight.spring.cursor.pagination.jpa.repository;
+
+/**
+ * Defines how the continuation token of a cursor query is turned into the keyset predicate.
+ * <p>
+ * Given a sort on {@code a, b, c} and a token holding the values {@code x, y, z}:
+ * <ul>
+ *     <li>{@link #EXPANDED}: {@code a > x OR (b > y AND a = x) OR (c > z AND a = x AND b = y)}</li>
+ *     <li>{@link #ROW_VALUE}: {@code (a, b, c) > (x, y, z)}</li>
+ *     <li>{@link #AUTO}: {@link #ROW_VALUE} on Hibernate, which renders the row value when the database dialect
+ *     supports row value comparisons and emulates it with the {@link #EXPANDED} form otherwise</li>
+ * </ul>
+ * The row value form can only be used when every {@link org.springframework.data.domain.Sort.Order} has the same
+ * direction and no nullable column sorts its nulls after the token values, otherwise the expanded form is always used
+ * as fallback.
+ */
+public enum KeysetPredicateStrategy {
+
+    EXPANDED,
+
+    ROW_VALUE,
+
+    AUTO
+}
@@ -0,0 +1,113 @@
+package it.halfweight.spring.cursor.pagination.jpa.repository;
+
+import it.halfweight.spring.cursor.pagination.jpa.domain.CursorPaginationSlice;
+import it.halfweight.spring.cursor.pagination.jpa.exception.CursorPaginationException;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * {@link Iterator} merging the {@link CursorPaginationSlice}s of several partitions, each one walked by its own task on
+ * the given {@link Executor}. Slices are returned in completion order and at most capacity of them are buffered.
+ */
+class PartitionedSliceIterator<T> implements Iterator<CursorPaginationSlice<T>>, AutoCloseable {
+
+    private static final Object DONE = new Object();
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final BlockingQueue<Object> slices;
+    private final List<CompletableFuture<Void>> workers;
+    private volatile boolean closed;
+    private int running;
+    private CursorPaginationSlice<T> next;
+
+    /**
+     * @param partitions the slices of every partition.
+     * @param executor   executor walking the partitions, it must run them concurrently.
+     * @param capacity   maximum number of fetched slices waiting to be consumed.
+     */
+    PartitionedSliceIterator(List<Iterator<CursorPaginationSlice<T>>> partitions, Executor executor, int capacity) {
+        this.slices = new ArrayBlockingQueue<>(capacity);
+        this.running = partitions.size();
+        this.workers = partitions.stream()
+                .map(partition -> CompletableFuture.runAsync(() -> walk(partition), executor))
+                .collect(toList());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean hasNext() {
+        while (next == null && running > 0) {
+            Object slice = take();
+            if (slice == DONE) {
+                running--;
+            } else if (slice instanceof RuntimeException) {
+                close();
+                throw (RuntimeException) slice;
+            } else {
+                next = (CursorPaginationSlice<T>) slice;
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public CursorPaginationSlice<T> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        CursorPaginationSlice<T> slice = next;
+        next = null;
+        return slice;
+    }
+
+    /**
+     * Stops the partition walks and discards the buffered slices.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        workers.forEach(worker -> worker.cancel(false));
+        slices.clear();
+        running = 0;
+    }
+
+    private void walk(Iterator<CursorPaginationSlice<T>> partition) {
+        try {
+            while (!closed && partition.hasNext()) {
+                put(partition.next());
+            }
+            put(DONE);
+        } catch (RuntimeException e) {
+            put(e);
+        }
+    }
+
+    private void put(Object slice) {
+        try {
+            while (!closed && !slices.offer(slice, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                // wait for the consumer
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Object take() {
+        try {
+            return slices.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new CursorPaginationException("Interrupted while waiting for the next page", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package it.halfweight.spring.cursor.pagination.jpa.repository;
+
+import org.hibernate.query.TupleTransformer;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Query built once through the criteria API and kept as its HQL string, whose keyset values are named parameters, only
+ * their values change between two executions. Hibernate caches the interpretation of HQL strings, so queries created
+ * from the same template skip the parsing and the semantic analysis, which criteria queries go through on every call.
+ */
+class QueryTemplate<S> {
+
+    final String hql;
+
+    /**
+     * Type of the rows selected by the HQL query, the entity or {@code Object[]} for transformed projections.
+     */
+    final Class<?> resultType;
+
+    /**
+     * Names of the keyset parameters, one per sort order, empty for queries without continuationToken.
+     * Orders whose continuationToken value is null have a {@literal null} name.
+     */
+    final List<String> keysetParameters;
+
+    /**
+     * Turns the selected values into the projection when the query selects an array, {@literal null} otherwise.
+     */
+    @Nullable
+    final TupleTransformer<S> tupleTransformer;
+
+    QueryTemplate(String hql, Class<?> resultType, List<String> keysetParameters, @Nullable TupleTransformer<S> tupleTransformer) {
+        this.hql = hql;
+        this.resultType = resultType;
+        this.keysetParameters = keysetParameters;
+        this.tupleTransformer = tupleTransformer;
+    }
+}
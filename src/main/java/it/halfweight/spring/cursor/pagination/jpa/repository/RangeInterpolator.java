@@ -0,0 +1,143 @@
+package it.halfweight.spring.cursor.pagination.jpa.repository;
+
+import org.springframework.lang.Nullable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Splits the range between the minimum and the maximum value of a numeric or temporal property into parts of the same
+ * width, so that partition boundaries are known without reading the rows between them.
+ */
+final class RangeInterpolator {
+
+    private static final BigDecimal NANOS_PER_SECOND = BigDecimal.valueOf(1_000_000_000L);
+
+    private RangeInterpolator() {
+    }
+
+    /**
+     * Returns the ascending boundaries splitting the range from min to max into the given number of parts, excluding
+     * min and max. Boundaries of integral values are rounded down, so fewer are returned when the range is narrow.
+     *
+     * @return the boundaries, {@literal null} when the values can't be interpolated.
+     */
+    @Nullable
+    static List<Object> interpolate(Object min, Object max, int parts) {
+        BigDecimal lower = toDecimal(min);
+        BigDecimal upper = toDecimal(max);
+        if (lower == null || upper == null || min.getClass() != max.getClass()) {
+            return null;
+        }
+        BigDecimal width = upper.subtract(lower);
+        List<Object> boundaries = new ArrayList<>(parts - 1);
+        Object previous = min;
+        for (int i = 1; i < parts; i++) {
+            BigDecimal position = lower.add(width.multiply(BigDecimal.valueOf(i)).divide(BigDecimal.valueOf(parts), 9, RoundingMode.FLOOR));
+            Object boundary = fromDecimal(position, min);
+            if (!boundary.equals(previous) && !boundary.equals(max)) {
+                boundaries.add(boundary);
+                previous = boundary;
+            }
+        }
+        return boundaries;
+    }
+
+    @Nullable
+    private static BigDecimal toDecimal(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double doubleValue = ((Number) value).doubleValue();
+            return Double.isFinite(doubleValue) ? BigDecimal.valueOf(doubleValue) : null;
+        }
+        if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        }
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value instanceof Instant) {
+            return toDecimal(((Instant) value).getEpochSecond(), ((Instant) value).getNano());
+        }
+        if (value instanceof OffsetDateTime) {
+            return toDecimal(((OffsetDateTime) value).toInstant());
+        }
+        if (value instanceof LocalDateTime) {
+            return toDecimal(((LocalDateTime) value).toInstant(ZoneOffset.UTC));
+        }
+        if (value instanceof LocalDate) {
+            return BigDecimal.valueOf(((LocalDate) value).toEpochDay());
+        }
+        if (value instanceof Timestamp) {
+            return toDecimal(((Timestamp) value).toInstant());
+        }
+        if (value instanceof Date) {
+            return BigDecimal.valueOf(((Date) value).getTime());
+        }
+        return null;
+    }
+
+    private static BigDecimal toDecimal(long epochSecond, int nanos) {
+        return BigDecimal.valueOf(epochSecond).multiply(NANOS_PER_SECOND).add(BigDecimal.valueOf(nanos));
+    }
+
+    private static Object fromDecimal(BigDecimal value, Object type) {
+        BigDecimal integral = value.setScale(0, RoundingMode.FLOOR);
+        if (type instanceof Long) {
+            return integral.longValue();
+        }
+        if (type instanceof Integer) {
+            return integral.intValue();
+        }
+        if (type instanceof Short) {
+            return integral.shortValue();
+        }
+        if (type instanceof Byte) {
+            return integral.byteValue();
+        }
+        if (type instanceof Double) {
+            return value.doubleValue();
+        }
+        if (type instanceof Float) {
+            return value.floatValue();
+        }
+        if (type instanceof BigInteger) {
+            return integral.toBigInteger();
+        }
+        if (type instanceof BigDecimal) {
+            return value;
+        }
+        if (type instanceof LocalDate) {
+            return LocalDate.ofEpochDay(integral.longValue());
+        }
+        if (type instanceof Date && !(type instanceof Timestamp)) {
+            long millis = integral.longValue();
+            return type instanceof java.sql.Date ? new java.sql.Date(millis) : new Date(millis);
+        }
+        // nanoseconds since the epoch, the remainder of negative values is a negative adjustment
+        BigDecimal[] seconds = integral.divideAndRemainder(NANOS_PER_SECOND);
+        Instant instant = Instant.ofEpochSecond(seconds[0].longValue(), seconds[1].longValue());
+        if (type instanceof OffsetDateTime) {
+            return instant.atOffset(((OffsetDateTime) type).getOffset());
+        }
+        if (type instanceof LocalDateTime) {
+            return LocalDateTime.ofEpochSecond(instant.getEpochSecond(), instant.getNano(), ZoneOffset.UTC);
+        }
+        if (type instanceof Timestamp) {
+            return Timestamp.from(instant);
+        }
+        return instant;
+    }
+}
@@ -0,0 +1,99 @@
+package it.halfweight.spring.cursor.pagination.jpa.repository;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import it.halfweight.spring.cursor.pagination.jpa.exception.CursorPaginationException;
+import it.halfweight.spring.cursor.pagination.jpa.util.ConverterUtil;
+import org.hibernate.Hibernate;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Sort property of a domain class resolved once: the field getter is bound to a {@link MethodHandle} and the
+ * conversion from the continuationToken string representation is picked by type, so reading and writing token
+ * values doesn't need any reflective lookup.
+ * <p>
+ * Dotted property names, like {@code childEntity.stringField}, are resolved as a chain of getters through embedded
+ * and associated entities.
+ */
+public final class SortPropertyAccessor {
+
+    private final String propertyName;
+    private final Class<?> type;
+    private final MethodHandle[] getters;
+    private final Function<String, Object> parser;
+
+    private SortPropertyAccessor(String propertyName, Class<?> type, MethodHandle[] getters) {
+        this.propertyName = propertyName;
+        this.type = type;
+        this.getters = getters;
+        this.parser = ConverterUtil.parser(type);
+    }
+
+    /**
+     * Resolves the property of the given domain class.
+     *
+     * @param domainClass  must not be {@literal null}.
+     * @param propertyName must not be {@literal null}.
+     * @return the accessor of the property.
+     * @throws IllegalArgumentException if the domain class doesn't declare the property.
+     */
+    public static SortPropertyAccessor of(Class<?> domainClass, String propertyName) {
+        List<String> fieldNames = Splitter.on('.').splitToList(propertyName);
+        MethodHandle[] getters = new MethodHandle[fieldNames.size()];
+        Class<?> type = domainClass;
+        for (int i = 0; i < getters.length; i++) {
+            Field field = ReflectionUtils.findField(type, fieldNames.get(i));
+            Preconditions.checkArgument(field != null, "Field not found by reflection fieldName: " + propertyName + " class:" + domainClass);
+            try {
+                ReflectionUtils.makeAccessible(field);
+                getters[i] = MethodHandles.lookup().unreflectGetter(field)
+                        .asType(MethodType.methodType(Object.class, Object.class));
+            } catch (IllegalAccessException e) {
+                throw new CursorPaginationException("Unable to get field from " + domainClass + " of name " + propertyName, e);
+            }
+            type = field.getType();
+        }
+        return new SortPropertyAccessor(propertyName, type, getters);
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * Returns the value of the property on the given entity, {@literal null} when an intermediate value of a dotted
+     * property is null. Lazy associations are initialized to read their fields.
+     */
+    public Object getValue(Object entity) {
+        try {
+            Object value = entity;
+            for (MethodHandle getter : getters) {
+                if (value == null) {
+                    return null;
+                }
+                value = (Object) getter.invokeExact(Hibernate.unproxy(value));
+            }
+            return value;
+        } catch (Throwable e) {
+            throw new CursorPaginationException("Unable to get field from " + entity.getClass() + " of name " + propertyName, e);
+        }
+    }
+
+    /**
+     * Converts the continuationToken representation to a property value.
+     */
+    public Object parse(String value) {
+        return parser.apply(value);
+    }
+}
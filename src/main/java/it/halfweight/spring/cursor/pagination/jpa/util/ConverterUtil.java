@@ -5,12 +5,50 @@ import org.apache.commons.beanutils.ConversionException;
 import org.apache.commons.beanutils.ConvertUtils;
 import org.apache.commons.beanutils.ConvertUtilsBean;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
 
 public class ConverterUtil {
 
     private static ConvertUtilsBean convertUtilsBean;
 
+    /**
+     * Parsers producing the same values of the default commons-beanutils converters, used when no custom
+     * configuration is provided.
+     */
+    private static final Map<Class<?>, Function<String, Object>> DEFAULT_PARSERS;
+
+    static {
+        Map<Class<?>, Function<String, Object>> parsers = new HashMap<>();
+        parsers.put(String.class, value -> value);
+        parsers.put(Long.class, Long::valueOf);
+        parsers.put(long.class, Long::valueOf);
+        parsers.put(Integer.class, Integer::valueOf);
+        parsers.put(int.class, Integer::valueOf);
+        parsers.put(Short.class, Short::valueOf);
+        parsers.put(short.class, Short::valueOf);
+        parsers.put(Byte.class, Byte::valueOf);
+        parsers.put(byte.class, Byte::valueOf);
+        parsers.put(Double.class, Double::valueOf);
+        parsers.put(double.class, Double::valueOf);
+        parsers.put(Float.class, Float::valueOf);
+        parsers.put(float.class, Float::valueOf);
+        parsers.put(Boolean.class, Boolean::valueOf);
+        parsers.put(boolean.class, Boolean::valueOf);
+        parsers.put(BigDecimal.class, BigDecimal::new);
+        parsers.put(BigInteger.class, BigInteger::new);
+        parsers.put(Timestamp.class, Timestamp::valueOf);
+        parsers.put(java.sql.Date.class, java.sql.Date::valueOf);
+        parsers.put(Time.class, Time::valueOf);
+        DEFAULT_PARSERS = Collections.unmodifiableMap(parsers);
+    }
+
     private ConverterUtil(){}
 
 
@@ -36,4 +74,17 @@ public class ConverterUtil {
             return convertUtilsBean.convert(value,clazz);
         }
     }
+
+    /**
+     * Returns a function converting strings to objects of the specified class, equivalent to
+     * {@link #convert(Object, Class)} but resolved once for the class.
+     * Keep in mind that {@link #config(Map)} should be called before resolving any function.
+     *
+     * @param clazz Java class to be converted to (must not be null)
+     * @return The conversion function
+     */
+    public static Function<String, Object> parser(final Class<?> clazz) {
+        Function<String, Object> parser = convertUtilsBean == null ? DEFAULT_PARSERS.get(clazz) : null;
+        return parser != null ? parser : value -> convert(value, clazz);
+    }
 }
@@ -0,0 +1,54 @@
+package it.halfweight.spring.cursor.pagination.jpa.util;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+public class SortUtil {
+
+    private static final int FINGERPRINT_CACHE_SIZE = 1024;
+
+    private static final LoadingCache<Sort, Long> FINGERPRINTS = CacheBuilder.newBuilder()
+            .maximumSize(FINGERPRINT_CACHE_SIZE)
+            .build(CacheLoader.from(SortUtil::computeFingerprint));
+
+    private SortUtil(){}
+
+    /**
+     * Returns the md5 hash of the given sort, in hex format. It's the sort hash of the text continuationToken format.
+     *
+     * @param sort must not be {@literal null}.
+     * @return the hash of the sort
+     */
+    public static String md5Hex(Sort sort) {
+        return DigestUtils.md5DigestAsHex(sort.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns a 64 bit fingerprint of the given sort, used to detect a sort change between two cursor requests.
+     * Fingerprints are computed once per sort and kept in a bounded cache.
+     *
+     * @param sort must not be {@literal null}.
+     * @return the fingerprint of the sort
+     */
+    public static long fingerprint(Sort sort) {
+        return FINGERPRINTS.getUnchecked(sort);
+    }
+
+    private static Long computeFingerprint(Sort sort) {
+        Hasher hasher = Hashing.farmHashFingerprint64().newHasher();
+        for (Sort.Order order : sort) {
+            hasher.putString(order.getProperty(), StandardCharsets.UTF_8)
+                    .putInt(order.getDirection().ordinal())
+                    .putBoolean(order.isIgnoreCase())
+                    .putInt(order.getNullHandling().ordinal());
+        }
+        return hasher.hash().asLong();
+    }
+}
@@ -9,12 +9,16 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.OneToOne;
 
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 
 @Entity
+@NamedEntityGraph(name = "TestEntity.childEntity", attributeNodes = @NamedAttributeNode("childEntity"))
 public class TestEntity {
 
     @Id
@@ -49,7 +53,8 @@ public class TestEntity {
 
     public TestEntity(String stringField, Instant date) {
         this.stringField = stringField;
-        this.date = Timestamp.from(date);
+        // the database keeps microseconds, so that the saved entities equal the ones read back
+        this.date = Timestamp.from(date.truncatedTo(ChronoUnit.MICROS));
     }
 
     @Override
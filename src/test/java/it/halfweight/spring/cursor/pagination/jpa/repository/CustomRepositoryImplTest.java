@@ -1,12 +1,34 @@
 package it.halfweight.spring.cursor.pagination.jpa.repository;
 
+import com.google.common.primitives.Longs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import it.halfweight.spring.cursor.pagination.jpa.annotation.ProjectionCreator;
 import it.halfweight.spring.cursor.pagination.jpa.annotation.SelectPath;
+import it.halfweight.spring.cursor.pagination.jpa.codec.BinaryContinuationTokenCodec;
+import it.halfweight.spring.cursor.pagination.jpa.codec.ContinuationToken;
+import it.halfweight.spring.cursor.pagination.jpa.codec.TextContinuationTokenCodec;
+import it.halfweight.spring.cursor.pagination.jpa.count.CountEstimator;
+import it.halfweight.spring.cursor.pagination.jpa.count.H2CountEstimator;
+import it.halfweight.spring.cursor.pagination.jpa.domain.CountMode;
 import it.halfweight.spring.cursor.pagination.jpa.domain.CursorPageRequest;
 import it.halfweight.spring.cursor.pagination.jpa.domain.CursorPaginationSlice;
+import it.halfweight.spring.cursor.pagination.jpa.domain.EstimatedPage;
+import it.halfweight.spring.cursor.pagination.jpa.domain.FetchMode;
 import it.halfweight.spring.cursor.pagination.jpa.domain.Money;
+import it.halfweight.spring.cursor.pagination.jpa.domain.TemplateSpecification;
 import it.halfweight.spring.cursor.pagination.jpa.domain.TestChildEntity;
 import it.halfweight.spring.cursor.pagination.jpa.domain.TestEntity;
+import it.halfweight.spring.cursor.pagination.jpa.metrics.CursorPaginationMetrics;
+import it.halfweight.spring.cursor.pagination.jpa.metrics.MicrometerCursorPaginationMetrics;
+import it.halfweight.spring.cursor.pagination.jpa.util.SortUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.spi.QueryInterpretationCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,21 +36,45 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Currency;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 
@@ -40,6 +86,15 @@ public class CustomRepositoryImplTest {
     @Autowired
     TestRepository testRepository;
 
+    @Autowired
+    TestReadOnlyRepository testReadOnlyRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     @BeforeEach
     public void setUp() {
         testRepository.deleteAll();
@@ -96,6 +151,25 @@ public class CustomRepositoryImplTest {
         assertThat(pjPage.getContent().get(0).moneyField, is(testEntity.moneyField));
     }
 
+    @Test
+    public void findAllProjectionSliced() {
+        TestEntity testEntity = testRepository.save(new TestEntity("stringField", Money.money(10D, Currency.getInstance("EUR"))));
+        TestEntity testEntity2 = testRepository.save(new TestEntity("stringField2", Money.money(20D, Currency.getInstance("EUR"))));
+
+        Slice<TestEntityProjectionSingleConstructor> pjSlice = testRepository.findAllProjectionSliced(null,
+                PageRequest.of(0, 1, Sort.by(Sort.Direction.ASC, "id")),
+                TestEntityProjectionSingleConstructor.class);
+
+        assertThat(pjSlice.hasNext(), is(true));
+        assertThat(pjSlice.getContent().size(), is(1));
+        assertThat(pjSlice.getContent().get(0).id, is(testEntity.id));
+
+        pjSlice = testRepository.findAllProjectionSliced(null, pjSlice.nextPageable(), TestEntityProjectionSingleConstructor.class);
+        assertThat(pjSlice.hasNext(), is(false));
+        assertThat(pjSlice.getContent().size(), is(1));
+        assertThat(pjSlice.getContent().get(0).id, is(testEntity2.id));
+    }
+
     @Test
     public void findAllIds() {
         TestEntity testEntity = testRepository.save(new TestEntity("stringField", Money.money(10D, Currency.getInstance("EUR"))));
@@ -110,6 +184,21 @@ public class CustomRepositoryImplTest {
         assertThat(ids, containsInAnyOrder(testEntity.id, testEntity2.id));
     }
 
+    @Test
+    public void findAllIdsInChunks() {
+        TestEntity testEntity = testRepository.save(new TestEntity("stringField", Money.money(10D, Currency.getInstance("EUR"))));
+        TestEntity testEntity2 = testRepository.save(new TestEntity("stringField2", Money.money(20D, Currency.getInstance("EUR"))));
+        TestEntity testEntity3 = testRepository.save(new TestEntity("stringField3", Money.money(30D, Currency.getInstance("EUR"))));
+
+        List<List<Long>> chunks = testRepository.streamAllIds(null, 2).collect(Collectors.toList());
+        assertThat(chunks, equalTo(Arrays.asList(Arrays.asList(testEntity.id, testEntity2.id), Collections.singletonList(testEntity3.id))));
+
+        List<long[]> longChunks = new ArrayList<>();
+        testRepository.findAllLongIds((root, query, cb) -> cb.notEqual(root.get("id"), testEntity2.id), 1, longChunks::add);
+        assertThat(longChunks.stream().map(Longs::asList).collect(Collectors.toList()),
+                equalTo(Arrays.asList(Collections.singletonList(testEntity.id), Collections.singletonList(testEntity3.id))));
+    }
+
     @Test
     public void testSpecificationFilter() {
         TestEntity testEntity = testRepository.save(new TestEntity("stringField", Money.money(10D, Currency.getInstance("EUR"))));
@@ -135,6 +224,32 @@ public class CustomRepositoryImplTest {
         assertThat(result.get(0).childStringField, is(testEntity.childEntity.stringField));
     }
 
+    @Test
+    public void testProjectionConstructorInvoker() {
+        CustomRepositoryImpl<TestEntity, Long> repositoryImpl = AopTestUtils.getUltimateTargetObject(testRepository);
+        repositoryImpl.setProjectionConstructorInvokerEnabled(true);
+        try {
+            TestEntity testEntity = testRepository.save(new TestEntity("stringField", Money.money(10D, Currency.getInstance("EUR")),
+                    new TestChildEntity("childStringField")));
+            TestEntity testEntity2 = testRepository.save(new TestEntity("stringField2", Money.money(20D, Currency.getInstance("EUR")),
+                    new TestChildEntity("childStringField2")));
+
+            List<TestEntityProjectionWithSelectPath> result = testRepository.findAllProjection(null, Sort.by("id"), TestEntityProjectionWithSelectPath.class);
+            assertThat(result.size(), is(2));
+            assertThat(result.get(0).id, is(testEntity.id));
+            assertThat(result.get(0).stringField, is(testEntity.stringField));
+            assertThat(result.get(0).childStringField, is(testEntity.childEntity.stringField));
+
+            CursorPaginationSlice<TestEntityProjectionWithSelectPath> page = testRepository.findAllProjection(null,
+                    CursorPageRequest.of(1, Sort.by("id")), TestEntityProjectionWithSelectPath.class);
+            page = testRepository.findAllProjection(null, CursorPageRequest.of(page.getContinuationToken(), 1, Sort.by("id")),
+                    TestEntityProjectionWithSelectPath.class);
+            assertThat(page.getContent().get(0).childStringField, is(testEntity2.childEntity.stringField));
+        } finally {
+            repositoryImpl.setProjectionConstructorInvokerEnabled(false);
+        }
+    }
+
     @Test
     public void testCursorPaginationSortByDateDesc() {
         TestEntity testEntity1 = testRepository.save(new TestEntity("First", Instant.now().minus(20, ChronoUnit.MINUTES)));
@@ -238,6 +353,775 @@ public class CustomRepositoryImplTest {
         assertThat(result.getContent(), contains(testEntity4, testEntity6));
     }
 
+    @Test
+    public void testCursorPaginationIdTiebreaker() {
+        Instant date = Instant.now().minus(10, ChronoUnit.MINUTES);
+        TestEntity testEntity1 = testRepository.save(new TestEntity("First", date));
+        TestEntity testEntity2 = testRepository.save(new TestEntity("Second", date));
+        TestEntity testEntity3 = testRepository.save(new TestEntity("Third", date));
+        TestEntity testEntity4 = testRepository.save(new TestEntity("Four", Instant.now().minus(20, ChronoUnit.MINUTES)));
+        TestEntity testEntity5 = testRepository.save(new TestEntity("Five", date));
+
+        List<TestEntity> result = testRepository.streamAllBy(null, CursorPageRequest.of(1, Sort.by(Sort.Order.asc("date")))).collect(Collectors.toList());
+        assertThat(result, contains(testEntity4, testEntity1, testEntity2, testEntity3, testEntity5));
+
+        result = testRepository.streamAllBy(null, CursorPageRequest.of(2, Sort.by(Sort.Order.desc("date")))).collect(Collectors.toList());
+        assertThat(result, contains(testEntity5, testEntity3, testEntity2, testEntity1, testEntity4));
+    }
+
+    @Test
+    public void testCursorPaginationTokenWithoutTiebreaker() {
+        Instant date = Instant.now().minus(10, ChronoUnit.MINUTES).truncatedTo(ChronoUnit.SECONDS);
+        TestEntity testEntity1 = testRepository.save(new TestEntity("First", date.minus(10, ChronoUnit.MINUTES)));
+        TestEntity testEntity2 = testRepository.save(new TestEntity("Second", date));
+        TestEntity testEntity3 = testRepository.save(new TestEntity("Third", date));
+        TestEntity testEntity4 = testRepository.save(new TestEntity("Four", date.plus(10, ChronoUnit.MINUTES)));
+        Sort sort = Sort.by(Sort.Order.asc("date"));
+        ContinuationToken token = new ContinuationToken(SortUtil.fingerprint(sort), false, new Object[]{Timestamp.from(date)});
+
+        // tokens issued without the id value start from the first row of their key
+        String binaryToken = new BinaryContinuationTokenCodec().encode(token, sort);
+        CursorPaginationSlice<TestEntity> result = testRepository.findAllBy(null, CursorPageRequest.of(binaryToken, 2, sort));
+        assertThat(result.getContent(), contains(testEntity2, testEntity3));
+        result = testRepository.findAllBy(null, CursorPageRequest.of(result.getContinuationToken(), 2, sort));
+        assertThat(result.getContent(), contains(testEntity4));
+
+        String textToken = new TextContinuationTokenCodec().encode(token, sort);
+        result = testRepository.findAllBy(null, CursorPageRequest.of(textToken, 2, sort));
+        assertThat(result.getContent(), contains(testEntity2, testEntity3));
+
+        result = testRepository.findAllBy(null, CursorPageRequest.of(result.getPreviousToken(), 2, sort));
+        assertThat(result.getContent(), contains(testEntity1));
+    }
+
+    @Test
+    public void testCursorPaginationProjection() {
+        Money money = Money.money(10D, Currency.getInstance("EUR"));
+        TestEntity testEntity1 = testRepository.save(new TestEntity("First", money, new TestChildEntity("c")));
+        TestEntity testEntity2 = testRepository.save(new TestEntity("Second", money, new TestChildEntity("b")));
+        TestEntity testEntity3 = testRepository.save(new TestEntity("Third", money, new TestChildEntity("a")));
+        Sort sort = Sort.by(Sort.Order.desc("stringField"));
+
+        CursorPaginationSlice<TestEntityProjectionWithSelectPath> result = testRepository.findAllProjection(null,
+                CursorPageRequest.of(2, sort), TestEntityProjectionWithSelectPath.class);
+        assertThat(result.getContent().stream().map(pj -> pj.id).collect(Collectors.toList()), contains(testEntity3.id, testEntity2.id));
+        assertThat(result.hasNext(), equalTo(true));
+
+        result = testRepository.findAllProjection(null, CursorPageRequest.of(result.getContinuationToken(), 2, sort), TestEntityProjectionWithSelectPath.class);
+        assertThat(result.getContent().stream().map(pj -> pj.id).collect(Collectors.toList()), contains(testEntity1.id));
+        assertThat(result.hasNext(), equalTo(false));
+
+        // tokens only depend on the sort values, so entity and projection pages can be mixed
+        CursorPaginationSlice<TestEntity> entities = testRepository.findAllBy(null, CursorPageRequest.of(1, sort));
+        result = testRepository.findAllProjection(null, CursorPageRequest.of(entities.getContinuationToken(), 1, sort), TestEntityProjectionWithSelectPath.class);
+        assertThat(result.getContent().stream().map(pj -> pj.id).collect(Collectors.toList()), contains(testEntity2.id));
+
+        // sort properties selected through @SelectPath are read from the annotated parameter field
+        Sort childSort = Sort.by(Sort.Order.asc("childEntity.stringField"));
+        result = testRepository.findAllProjection(null, CursorPageRequest.of(2, childSort), TestEntityProjectionWithSelectPath.class);
+        result = testRepository.findAllProjection(null, CursorPageRequest.of(result.getContinuationToken(), 2, childSort), TestEntityProjectionWithSelectPath.class);
+        assertThat(result.getContent().stream().map(pj -> pj.id).collect(Collectors.toList()), contains(testEntity1.id));
+
+        assertThatThrownBy(() -> testRepository.findAllProjection(null, CursorPageRequest.of(1, Sort.by(Sort.Order.asc("date"))),
+                TestEntityProjectionWithSelectPath.class)).hasRootCauseInstanceOf(IllegalArgumentException.class);
+        // the id appended as tiebreaker must be selected too
+        assertThatThrownBy(() -> testRepository.findAllProjection(null, CursorPageRequest.of(1, sort), TestEntityProjectionWithoutId.class))
+                .hasRootCauseInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("must select the id id");
+    }
+
+    @Test
+    public void testCursorPaginationRowValuePredicate() {
+        CustomRepositoryImpl<TestEntity, Long> repositoryImpl = AopTestUtils.getUltimateTargetObject(testRepository);
+        repositoryImpl.setKeysetPredicateStrategy(KeysetPredicateStrategy.ROW_VALUE);
+        try {
+            Instant now = Instant.now();
+            TestEntity testEntity1 = testRepository.save(new TestEntity("First", now)); // id 1
+            TestEntity testEntity2 = testRepository.save(new TestEntity("Second", now.minus(1, ChronoUnit.MINUTES))); // id 2
+            TestEntity testEntity3 = testRepository.save(new TestEntity("Third", now)); // id 3
+            TestEntity testEntity4 = testRepository.save(new TestEntity("Four", now.minus(1, ChronoUnit.MINUTES))); // id 4
+            Sort sort = Sort.by(Sort.Order.desc("date"), Sort.Order.desc("id"));
+
+            CursorPaginationSlice<TestEntity> result = testRepository.findAllBy(null, CursorPageRequest.of(1, sort));
+            assertThat(result.hasNext(), equalTo(true));
+            assertThat(result.getContent(), contains(testEntity3));
+
+            result = testRepository.findAllBy(null, CursorPageRequest.of(result.getContinuationToken(), 2, sort));
+            assertThat(result.hasNext(), equalTo(true));
+            assertThat(result.getContent(), contains(testEntity1, testEntity4));
+
+            result = testRepository.findAllBy(null, CursorPageRequest.of(result.getContinuationToken(), 2, sort));
+            assertThat(result.hasNext(), equalTo(false));
+            assertThat(result.getContent(), contains(testEntity2));
+        } finally {
+            repositoryImpl.setKeysetPredicateStrategy(KeysetPredicateStrategy.EXPANDED);
+        }
+    }
+
+    @Test
+    public void testCursorPaginationCountMode() {
+        testRepository.save(new TestEntity("First", Instant.now().minus(20, ChronoUnit.MINUTES)));
+        testRepository.save(new TestEntity("Second", Instant.now().minus(10, ChronoUnit.MINUTES)));
+        testRepository.save(new TestEntity("Third", Instant.now().minus(5, ChronoUnit.MINUTES)));
+        Sort sort = Sort.by(Sort.Order.asc("id"));
+
+        CursorPaginationSlice<TestEntity> result = testRepository.findAllBy(null, CursorPageRequest.of(1, sort));
+        assertThat(result.getSize(), equalTo(3));
+        assertThat(result.getTotalElements().orElse(null), equalTo(3L));
+
+        result = testRepository.findAllBy(null, CursorPageRequest.of(1, sort).withCountMode(CountMode.NONE));
+        assertThat(result.getSize(), equalTo(1));
+        assertThat(result.hasTotalElements(), equalTo(false));
+        assertThat(result.getTotalElements().isPresent(), equalTo(false));
+
+        result = testRepository.findAllBy(null, CursorPageRequest.of(1, sort).withCountMode(CountMode.LAZY));
+        assertThat(result.getSize(), equalTo(1));
+        assertThat(result.hasTotalElements(), equalTo(true));
+        assertThat(result.getTotalElements().orElse(null), equalTo(3L));
+
+        result = testRepository.findAllBy(null, CursorPageRequest.of(result.getContinuationToken(), 1, sort).withCountMode(CountMode.LAZY));
+        assertThat(result.hasTotalElements(), equalTo(false));
+    }
+
+    @Test
+    public void testCursorPaginationCountLimit() {
+        testRepository.save(new TestEntity("First", Instant.now().minus(20, ChronoUnit.MINUTES)));
+        testRepository.save(new TestEntity("Second", Instant.now().minus(10, ChronoUnit.MINUTES)));
+        testRepository.save(new TestEntity("Third", Instant.now().minus(5, ChronoUnit.MINUTES)));
+        Sort sort = Sort.by(Sort.Order.asc("id"));
+
+        CursorPaginationSlice<TestEntity> result = testRepository.findAllBy(null, CursorPageRequest.of(1, sort).withCountLimit(2));
+        assertThat(result.getSize(), equalTo(2));
+        assertThat(result.getTotalElements().orElse(null), equalTo(2L));
+        assertThat(result.isTotalElementsTruncated(), equalTo(true));
+
+        result = testRepository.findAllBy(null, CursorPageRequest.of(1, sort).withCountMode(CountMode.LAZY).withCountLimit(3));
+        assertThat(result.getTotalElements().orElse(null), equalTo(3L));
+        assertThat(result.isTotalElementsTruncated(), equalTo(false));
+
+        result = testRepository.findAllBy(null, CursorPageRequest.of(1, sort));
+        assertThat(result.isTotalElementsTruncated(), equalTo(false));
+    }
+
+    @Test
+    public void testCursorPaginationAsyncCount() {
+        CustomRepositoryImpl<TestEntity, Long> repositoryImpl = AopTestUtils.getUltimateTargetObject(testRepository);
+        Executor countExecutor = (Executor) ReflectionTestUtils.getField(repositoryImpl, "countExecutor");
+        List<Runnable> counts = new ArrayList<>();
+        repositoryImpl.setCountExecutor(counts::add);
+        try {
+            testRepository.save(new TestEntity("First", Instant.now().minus(20, ChronoUnit.MINUTES)));
+            testRepository.save(new TestEntity("Second", Instant.now().minus(10, ChronoUnit.MINUTES)));
+            AtomicInteger countQueries = new AtomicInteger();
+            Specification<TestEntity> spec = (root, query, cb) -> {
+                if (Long.class.equals(query.getResultType())) {
+                    countQueries.incrementAndGet();
+                }
+                return cb.and();
+            };
+
+            CursorPaginationSlice<TestEntity> result = testRepository.findAllBy(spec, CursorPageRequest.of(1, Sort.by("id")).withCountMode(CountMode.ASYNC));
+            assertThat(result.getContent().size(), equalTo(1));
+            assertThat(counts.size(), equalTo(1));
+            counts.get(0).run();
+            assertThat(result.getTotalElements(), equalTo(Optional.of(2L)));
+            assertThat(countQueries.get(), equalTo(1));
+
+            // the count of a failed page is cancelled before it starts
+            assertThatThrownBy(() -> testRepository.findAllBy(spec, CursorPageRequest.of(1, Sort.by("missingField")).withCountMode(CountMode.ASYNC)))
+                    .isInstanceOf(RuntimeException.class);
+            assertThat(counts.size(), equalTo(2));
+            counts.get(1).run();
+            assertThat(countQueries.get(), equalTo(1));
+        } finally {
+            repositoryImpl.setCountExecutor(countExecutor);
+        }
+    }
+
+    @Test
+    public void testCursorPaginationWindowCount() {
+        TestEntity testEntity1 = testRepository.save(new TestEntity("First", Money.money(10D, Currency.getInstance("EUR"))));
+        TestEntity testEntity2 = testRepository.save(new TestEntity("Second", Money.money(20D, Currency.getInstance("EUR"))));
+        TestEntity testEntity3 = testRepository.save(new TestEntity("Third", Money.money(30D, Currency.getInstance("EUR"))));
+        Sort sort = Sort.by(Sort.Order.desc("id"));
+
+        CursorPaginationSlice<TestEntity> result = testRepository.findAllBy(null, CursorPageRequest.of(2, sort).withCountMode(CountMode.WINDOW));
+        assertThat(result.getContent(), contains(testEntity3, testEntity2));
+        assertThat(result.getTotalElements().orElse(null), equalTo(3L));
+        assertThat(result.getSize(), equalTo(3));
+
+        result = testRepository.findAllBy(null, CursorPageRequest.of(result.getContinuationToken(), 2, sort).withCountMode(CountMode.WINDOW));
+        assertThat(result.getContent(), contains(testEntity1));
+        assertThat(result.hasTotalElements(), equalTo(false));
+
+        CursorPaginationSlice<TestEntityProjectionSingleConstructor> projections = testRepository.findAllProjection(
+                (root, query, cb) -> cb.notEqual(root.get("id"), testEntity3.id), CursorPageRequest.of(1, sort).withCountMode(CountMode.WINDOW),
+                TestEntityProjectionSingleConstructor.class);
+        assertThat(projections.getContent().get(0).id, is(testEntity2.id));
+        assertThat(projections.getTotalElements().orElse(null), equalTo(2L));
+    }
+
+    @Test
+    public void testCursorPaginationCountEstimate() {
+        CustomRepositoryImpl<TestEntity, Long> repositoryImpl = AopTestUtils.getUltimateTargetObject(testRepository);
+        repositoryImpl.setCountEstimator((entityManager, tableName) -> 100L);
+        try {
+            testRepository.save(new TestEntity("First", Instant.now().minus(20, ChronoUnit.MINUTES)));
+            testRepository.save(new TestEntity("Second", Instant.now().minus(10, ChronoUnit.MINUTES)));
+            Sort sort = Sort.by(Sort.Order.asc("id"));
+
+            CursorPaginationSlice<TestEntity> result = testRepository.findAllBy(null, CursorPageRequest.of(1, sort));
+            assertThat(result.getTotalElements().orElse(null), equalTo(100L));
+            assertThat(result.isTotalElementsEstimated(), equalTo(true));
+
+            // filtered queries are always counted
+            result = testRepository.findAllBy((root, query, cb) -> cb.equal(root.get("stringField"), "First"), CursorPageRequest.of(1, sort));
+            assertThat(result.getTotalElements().orElse(null), equalTo(1L));
+            assertThat(result.isTotalElementsEstimated(), equalTo(false));
+
+            Page<TestEntityProjectionSingleConstructor> page = testRepository.findAllProjectionPaged(null,
+                    PageRequest.of(0, 1, sort), TestEntityProjectionSingleConstructor.class);
+            assertThat(page.getTotalElements(), is(100L));
+            assertThat(page instanceof EstimatedPage, is(true));
+
+            // the estimate of the H2 statistics, the rows of the test transaction included
+            repositoryImpl.setCountEstimator(new H2CountEstimator());
+            assertThat(new H2CountEstimator().estimate(entityManager, "TestEntity"), equalTo(2L));
+            result = testRepository.findAllBy(null, CursorPageRequest.of(1, sort));
+            assertThat(result.getTotalElements().orElse(null), equalTo(2L));
+            assertThat(result.isTotalElementsEstimated(), equalTo(true));
+
+            // without statistics the elements are counted
+            assertThat(new H2CountEstimator().estimate(entityManager, "MissingTable"), nullValue());
+            repositoryImpl.setCountEstimator((entityManager, tableName) -> null);
+            result = testRepository.findAllBy(null, CursorPageRequest.of(1, sort));
+            assertThat(result.getTotalElements().orElse(null), equalTo(2L));
+            assertThat(result.isTotalElementsEstimated(), equalTo(false));
+        } finally {
+            repositoryImpl.setCountEstimator(CountEstimator.NONE);
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testCountCache() {
+        CustomRepositoryImpl<TestEntity, Long> repositoryImpl = AopTestUtils.getUltimateTargetObject(testRepository);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        repositoryImpl.setCountCache(100, Duration.ofMinutes(1));
+        try {
+            testRepository.save(new TestEntity("First", Instant.now().minus(20, ChronoUnit.MINUTES)));
+            testRepository.save(new TestEntity("Second", Instant.now().minus(10, ChronoUnit.MINUTES)));
+            testRepository.save(new TestEntity("First", Instant.now().minus(5, ChronoUnit.MINUTES)));
+            Sort sort = Sort.by(Sort.Order.asc("id"));
+            Specification<TestEntity> first = (root, query, cb) -> cb.equal(root.get("stringField"), "First");
+
+            assertThat(testRepository.findAllBy(null, CursorPageRequest.of(1, sort)).getTotalElements().orElse(null), equalTo(3L));
+            assertThat(testRepository.count(new StringFieldSpecification("First")), equalTo(2L));
+            assertThat(testRepository.count(new StringFieldSpecification("Second")), equalTo(1L));
+            assertThat(testRepository.count(first), equalTo(2L));
+
+            // not saved through the repository, the cached counts are still served
+            transactionTemplate.executeWithoutResult(status -> entityManager.persist(new TestEntity("First", Instant.now())));
+            assertThat(testRepository.findAllBy(null, CursorPageRequest.of(1, sort)).getTotalElements().orElse(null), equalTo(3L));
+            assertThat(testRepository.count((Specification<TestEntity>) null), equalTo(3L));
+            assertThat(testRepository.count(new StringFieldSpecification("First")), equalTo(2L));
+            assertThat(testRepository.count(new StringFieldSpecification("Second")), equalTo(1L));
+            // specifications other than templates are never cached
+            assertThat(testRepository.count(first), equalTo(3L));
+
+            transactionTemplate.executeWithoutResult(status -> {
+                testRepository.save(new TestEntity("Third", Instant.now()));
+                // the writing transaction counts its own changes, other threads the committed cached count
+                assertThat(testRepository.count((Specification<TestEntity>) null), equalTo(5L));
+                assertThat(countOn(executor), equalTo(3L));
+            });
+            assertThat(countOn(executor), equalTo(5L));
+            assertThat(testRepository.count(new StringFieldSpecification("First")), equalTo(3L));
+
+            transactionTemplate.executeWithoutResult(status -> {
+                testRepository.save(new TestEntity("RolledBack", Instant.now()));
+                status.setRollbackOnly();
+            });
+            assertThat(countOn(executor), equalTo(5L));
+        } finally {
+            repositoryImpl.setCountCache(0, Duration.ZERO);
+            executor.shutdown();
+            testRepository.deleteAllInBatch();
+        }
+    }
+
+    private long countOn(ExecutorService executor) {
+        return CompletableFuture.supplyAsync(() -> testRepository.count((Specification<TestEntity>) null), executor).join();
+    }
+
+    @Test
+    public void testCursorPaginationIdsFirst() {
+        Money money = Money.money(10D, Currency.getInstance("EUR"));
+        TestEntity testEntity1 = testRepository.save(new TestEntity("First", money, new TestChildEntity("c")));
+        TestEntity testEntity2 = testRepository.save(new TestEntity("Second", money, new TestChildEntity("b")));
+        TestEntity testEntity3 = testRepository.save(new TestEntity("Third", money, new TestChildEntity("a")));
+        Sort sort = Sort.by(Sort.Order.asc("childEntity.stringField"));
+
+        CursorPaginationSlice<TestEntity> result = testRepository.findAllBy(null, CursorPageRequest.of(2, sort), "TestEntity.childEntity");
+        assertThat(result.getContent(), contains(testEntity3, testEntity2));
+        assertThat(result.getTotalElements().orElse(null), equalTo(3L));
+
+        result = testRepository.findAllBy(null, CursorPageRequest.of(result.getContinuationToken(), 2, sort), null);
+        assertThat(result.getContent(), contains(testEntity1));
+        assertThat(result.hasNext(), equalTo(false));
+
+        // keys are the same of the single query fetch, tokens can be shared
+        result = testRepository.findAllBy(null, CursorPageRequest.of(result.getPreviousToken(), 2, sort));
+        assertThat(result.getContent(), contains(testEntity3, testEntity2));
+
+        // the keyset query doesn't select the entity, a specification fetching associations is rejected up front
+        Specification<TestEntity> fetchChild = (root, query, cb) -> {
+            root.fetch("childEntity");
+            return cb.notEqual(root.get("stringField"), "Second");
+        };
+        assertThatThrownBy(() -> testRepository.findAllBy(fetchChild, CursorPageRequest.of(2, sort), "TestEntity.childEntity"))
+                .hasRootCauseInstanceOf(IllegalArgumentException.class)
+                .hasRootCauseMessage("Can't select the keys of a Specification fetching associations, fetch them with the fetch graph instead");
+        Specification<TestEntity> notSecond = (root, query, cb) -> cb.notEqual(root.get("stringField"), "Second");
+        result = testRepository.findAllBy(notSecond, CursorPageRequest.of(2, sort), "TestEntity.childEntity");
+        assertThat(result.getContent(), contains(testEntity3, testEntity1));
+        assertThat(result.getTotalElements().orElse(null), equalTo(2L));
+
+        assertThatThrownBy(() -> testRepository.findAllBy(null, CursorPageRequest.of(2, sort), "missing"))
+                .hasRootCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testCursorPaginationFetchMode() {
+        TestEntity testEntity1 = testRepository.save(new TestEntity("First", Instant.now().minus(20, ChronoUnit.MINUTES)));
+        TestEntity testEntity2 = testRepository.save(new TestEntity("Second", Instant.now().minus(10, ChronoUnit.MINUTES)));
+        entityManager.flush();
+        entityManager.clear();
+        Sort sort = Sort.by(Sort.Order.asc("id"));
+
+        CursorPaginationSlice<TestEntity> result = testRepository.findAllBy(null, CursorPageRequest.of(1, sort).withCountMode(CountMode.NONE).withFetchMode(FetchMode.READ_ONLY));
+        assertThat(result.getContent(), contains(testEntity1));
+        assertThat(entityManager.unwrap(Session.class).isReadOnly(result.getContent().get(0)), equalTo(true));
+
+        result = testRepository.findAllBy(null, CursorPageRequest.of(result.getContinuationToken(), 1, sort).withFetchMode(FetchMode.STATELESS));
+        assertThat(result.getContent(), contains(testEntity2));
+        assertThat(entityManager.contains(result.getContent().get(0)), equalTo(false));
+
+        CustomRepositoryImpl<TestEntity, Long> repositoryImpl = AopTestUtils.getUltimateTargetObject(testRepository);
+        repositoryImpl.setFetchMode(FetchMode.STATELESS);
+        try {
+            List<TestEntity> entities = testRepository.streamAllBy(null, CursorPageRequest.of(1, sort)).collect(Collectors.toList());
+            assertThat(entities, contains(testEntity1, testEntity2));
+            assertThat(entities.stream().anyMatch(entityManager::contains), equalTo(false));
+        } finally {
+            repositoryImpl.setFetchMode(FetchMode.MANAGED);
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testCursorPaginationStatelessOutsideTransaction() {
+        try {
+            TestEntity testEntity1 = testRepository.save(new TestEntity("First", Instant.now().minus(20, ChronoUnit.MINUTES)));
+            TestEntity testEntity2 = testRepository.save(new TestEntity("Second", Instant.now().minus(10, ChronoUnit.MINUTES)));
+            Sort sort = Sort.by(Sort.Order.asc("id"));
+
+            // the stateless session opens its own connection, the query hints of the method still apply
+            CursorPaginationSlice<TestEntity> result = testReadOnlyRepository.findAllBy(null, CursorPageRequest.of(1, sort).withFetchMode(FetchMode.STATELESS));
+            assertThat(result.getContent(), contains(testEntity1));
+            result = testReadOnlyRepository.findAllBy(null, CursorPageRequest.of(result.getContinuationToken(), 1, sort).withFetchMode(FetchMode.STATELESS));
+            assertThat(result.getContent(), contains(testEntity2));
+            assertThat(result.hasNext(), equalTo(false));
+        } finally {
+            testRepository.deleteAllInBatch();
+        }
+    }
+
+    @Test
+    public void testCursorPaginationPreviousToken() {
+        TestEntity testEntity1 = testRepository.save(new TestEntity("First", Instant.now().minus(20, ChronoUnit.MINUTES)));
+        TestEntity testEntity2 = testRepository.save(new TestEntity("Second", Instant.now().minus(10, ChronoUnit.MINUTES)));
+        TestEntity testEntity3 = testRepository.save(new TestEntity("Third", Instant.now().minus(5, ChronoUnit.MINUTES)));
+        TestEntity testEntity4 = testRepository.save(new TestEntity("Four", Instant.now().minus(4, ChronoUnit.MINUTES)));
+        TestEntity testEntity5 = testRepository.save(new TestEntity("Five", Instant.now().minus(3, ChronoUnit.MINUTES)));
+        Sort sort = Sort.by(Sort.Order.desc("date"), Sort.Order.desc("id"));
+
+        CursorPaginationSlice<TestEntity> result = testRepository.findAllBy(null, CursorPageRequest.of(2, sort));
+        assertThat(result.hasPrevious(), equalTo(false));
+        assertThat(result.getPreviousToken(), nullValue());
+        assertThat(result.getContent(), contains(testEntity5, testEntity4));
+
+        result = testRepository.findAllBy(null, CursorPageRequest.of(result.getContinuationToken(), 2, sort));
+        assertThat(result.hasPrevious(), equalTo(true));
+        assertThat(result.getContent(), contains(testEntity3, testEntity2));
+
+        CursorPaginationSlice<TestEntity> lastPage = testRepository.findAllBy(null, CursorPageRequest.of(result.getContinuationToken(), 2, sort));
+        assertThat(lastPage.hasNext(), equalTo(false));
+        assertThat(lastPage.hasPrevious(), equalTo(true));
+        assertThat(lastPage.getContent(), contains(testEntity1));
+
+        result = testRepository.findAllBy(null, CursorPageRequest.of(result.getPreviousToken(), 2, sort));
+        assertThat(result.hasPrevious(), equalTo(false));
+        assertThat(result.hasNext(), equalTo(true));
+        assertThat(result.getContent(), contains(testEntity5, testEntity4));
+
+        result = testRepository.findAllBy(null, CursorPageRequest.of(result.getContinuationToken(), 2, sort));
+        assertThat(result.getContent(), contains(testEntity3, testEntity2));
+
+        result = testRepository.findAllBy(null, CursorPageRequest.of(lastPage.getPreviousToken(), 2, sort));
+        assertThat(result.hasPrevious(), equalTo(true));
+        assertThat(result.hasNext(), equalTo(true));
+        assertThat(result.getContent(), contains(testEntity3, testEntity2));
+    }
+
+    @Test
+    public void testStreamAllBy() {
+        TestEntity testEntity1 = testRepository.save(new TestEntity("First", Instant.now().minus(20, ChronoUnit.MINUTES)));
+        TestEntity testEntity2 = testRepository.save(new TestEntity("Second", Instant.now().minus(10, ChronoUnit.MINUTES)));
+        TestEntity testEntity3 = testRepository.save(new TestEntity("Third", Instant.now().minus(5, ChronoUnit.MINUTES)));
+        TestEntity testEntity4 = testRepository.save(new TestEntity("Four", Instant.now().minus(4, ChronoUnit.MINUTES)));
+        TestEntity testEntity5 = testRepository.save(new TestEntity("Five", Instant.now().minus(3, ChronoUnit.MINUTES)));
+        Sort sort = Sort.by(Sort.Order.desc("date"), Sort.Order.desc("id"));
+
+        List<TestEntity> result = testRepository.streamAllBy(null, CursorPageRequest.of(2, sort)).collect(Collectors.toList());
+        assertThat(result, contains(testEntity5, testEntity4, testEntity3, testEntity2, testEntity1));
+        assertThat(entityManager.contains(testEntity5), equalTo(false));
+        assertThat(entityManager.contains(testEntity1), equalTo(false));
+
+        CursorPaginationSlice<TestEntity> firstPage = testRepository.findAllBy(null, CursorPageRequest.of(2, sort));
+        result = testRepository.streamAllBy(null, CursorPageRequest.of(firstPage.getContinuationToken(), 2, sort)).collect(Collectors.toList());
+        assertThat(result, contains(testEntity3, testEntity2, testEntity1));
+    }
+
+    @Test
+    public void testStreamSlicesByWithReadAhead() {
+        TestEntity testEntity1 = testRepository.save(new TestEntity("First", Instant.now().minus(20, ChronoUnit.MINUTES)));
+        TestEntity testEntity2 = testRepository.save(new TestEntity("Second", Instant.now().minus(10, ChronoUnit.MINUTES)));
+        TestEntity testEntity3 = testRepository.save(new TestEntity("Third", Instant.now().minus(5, ChronoUnit.MINUTES)));
+        TestEntity testEntity4 = testRepository.save(new TestEntity("Four", Instant.now().minus(4, ChronoUnit.MINUTES)));
+        TestEntity testEntity5 = testRepository.save(new TestEntity("Five", Instant.now().minus(3, ChronoUnit.MINUTES)));
+        Sort sort = Sort.by(Sort.Order.asc("id"));
+
+        // the direct executor keeps the fetches in the test transaction, which is not visible from other connections
+        List<List<TestEntity>> pages = testRepository.streamSlicesBy(null, CursorPageRequest.of(2, sort), Runnable::run, 2)
+                .map(CursorPaginationSlice::getContent)
+                .collect(Collectors.toList());
+        assertThat(pages.size(), equalTo(3));
+        assertThat(pages.get(0), contains(testEntity1, testEntity2));
+        assertThat(pages.get(1), contains(testEntity3, testEntity4));
+        assertThat(pages.get(2), contains(testEntity5));
+
+        List<TestEntity> result = testRepository.streamAllBy(null, CursorPageRequest.of(2, sort), Runnable::run, 1).collect(Collectors.toList());
+        assertThat(result, contains(testEntity1, testEntity2, testEntity3, testEntity4, testEntity5));
+
+        assertThatThrownBy(() -> testRepository.streamAllBy(null, CursorPageRequest.of(2, sort), Runnable::run, -1))
+                .hasRootCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testStreamSlicesByWithReadAheadOnExecutor() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AtomicInteger fetches = new AtomicInteger();
+        Executor countingExecutor = task -> {
+            fetches.incrementAndGet();
+            executor.execute(task);
+        };
+        try {
+            TestEntity testEntity1 = testRepository.save(new TestEntity("First", Instant.now().minus(20, ChronoUnit.MINUTES)));
+            TestEntity testEntity2 = testRepository.save(new TestEntity("Second", Instant.now().minus(10, ChronoUnit.MINUTES)));
+            TestEntity testEntity3 = testRepository.save(new TestEntity("Third", Instant.now().minus(5, ChronoUnit.MINUTES)));
+            TestEntity testEntity4 = testRepository.save(new TestEntity("Four", Instant.now().minus(4, ChronoUnit.MINUTES)));
+            TestEntity testEntity5 = testRepository.save(new TestEntity("Five", Instant.now().minus(3, ChronoUnit.MINUTES)));
+            Sort sort = Sort.by(Sort.Order.asc("id"));
+
+            // the committed entities are read by the executor threads, after streamSlicesBy returned
+            List<List<TestEntity>> pages = testRepository.streamSlicesBy(null, CursorPageRequest.of(2, sort), countingExecutor, 2)
+                    .map(CursorPaginationSlice::getContent)
+                    .collect(Collectors.toList());
+            assertThat(pages.size(), equalTo(3));
+            assertThat(pages.get(0), contains(testEntity1, testEntity2));
+            assertThat(pages.get(1), contains(testEntity3, testEntity4));
+            assertThat(pages.get(2), contains(testEntity5));
+            assertThat(fetches.get(), greaterThanOrEqualTo(2));
+
+            List<TestEntity> result = testRepository.streamAllBy(null, CursorPageRequest.of(1, sort), countingExecutor, 1).collect(Collectors.toList());
+            assertThat(result, contains(testEntity1, testEntity2, testEntity3, testEntity4, testEntity5));
+        } finally {
+            executor.shutdown();
+            testRepository.deleteAllInBatch();
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testParallelStreamAllBy() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            TestEntity testEntity1 = testRepository.save(new TestEntity("First", Instant.now().minus(20, ChronoUnit.MINUTES)));
+            TestEntity testEntity2 = testRepository.save(new TestEntity("Second", Instant.now().minus(10, ChronoUnit.MINUTES)));
+            TestEntity testEntity3 = testRepository.save(new TestEntity("Third", Instant.now().minus(5, ChronoUnit.MINUTES)));
+            TestEntity testEntity4 = testRepository.save(new TestEntity("Four", Instant.now().minus(4, ChronoUnit.MINUTES)));
+            TestEntity testEntity5 = testRepository.save(new TestEntity("Five", Instant.now().minus(3, ChronoUnit.MINUTES)));
+            Sort sort = Sort.by(Sort.Order.asc("id"));
+
+            List<TestEntity> result = testRepository.parallelStreamAllBy(null, CursorPageRequest.of(1, sort), 3, executor).collect(Collectors.toList());
+            assertThat(result, containsInAnyOrder(testEntity1, testEntity2, testEntity3, testEntity4, testEntity5));
+
+            result = testRepository.parallelStreamAllBy(null, CursorPageRequest.of(2, sort).withFetchMode(FetchMode.STATELESS), 2, executor).collect(Collectors.toList());
+            assertThat(result, containsInAnyOrder(testEntity1, testEntity2, testEntity3, testEntity4, testEntity5));
+        } finally {
+            executor.shutdown();
+            testRepository.deleteAllInBatch();
+        }
+    }
+
+    @Test
+    public void testFindPartitions() {
+        TestEntity testEntity1 = testRepository.save(new TestEntity("First", Instant.now().minus(20, ChronoUnit.MINUTES)));
+        TestEntity testEntity2 = testRepository.save(new TestEntity("Second", Instant.now().minus(10, ChronoUnit.MINUTES)));
+        TestEntity testEntity3 = testRepository.save(new TestEntity("Third", Instant.now().minus(5, ChronoUnit.MINUTES)));
+        TestEntity testEntity4 = testRepository.save(new TestEntity("Four", Instant.now().minus(4, ChronoUnit.MINUTES)));
+        TestEntity testEntity5 = testRepository.save(new TestEntity("Five", Instant.now().minus(3, ChronoUnit.MINUTES)));
+        Sort sort = Sort.by(Sort.Order.desc("date"), Sort.Order.desc("id"));
+
+        List<Specification<TestEntity>> partitions = testRepository.findPartitions(null, sort, 3);
+        assertThat(partitions.size(), equalTo(3));
+        List<TestEntity> result = partitions.stream()
+                .flatMap(partition -> testRepository.streamAllBy(partition, CursorPageRequest.of(1, sort)))
+                .collect(Collectors.toList());
+        assertThat(result, contains(testEntity5, testEntity4, testEntity3, testEntity2, testEntity1));
+
+        assertThat(testRepository.findPartitions(null, sort, 1).size(), equalTo(1));
+        // timestamps are split into ranges of the same width, some of them empty
+        partitions = testRepository.findPartitions(null, sort, 10);
+        assertThat(partitions.size(), equalTo(10));
+        result = partitions.stream()
+                .flatMap(partition -> testRepository.streamAllBy(partition, CursorPageRequest.of(1, sort)))
+                .collect(Collectors.toList());
+        assertThat(result, contains(testEntity5, testEntity4, testEntity3, testEntity2, testEntity1));
+
+        // boundaries of integral values are rounded down, consecutive ids give at most a range per value
+        Sort idSort = Sort.by(Sort.Order.asc("id"));
+        assertThat(testRepository.findPartitions(null, idSort, 10).size(), lessThanOrEqualTo(5));
+        result = testRepository.findPartitions(null, idSort, 2).stream()
+                .flatMap(partition -> testRepository.streamAllBy(partition, CursorPageRequest.of(1, idSort)))
+                .collect(Collectors.toList());
+        assertThat(result, contains(testEntity1, testEntity2, testEntity3, testEntity4, testEntity5));
+
+        // strings can't be interpolated, they're sampled
+        Sort stringSort = Sort.by(Sort.Order.asc("stringField"));
+        assertThat(testRepository.findPartitions(null, stringSort, 10).size(), equalTo(5));
+    }
+
+    @Test
+    public void testCursorPaginationNullHandling() {
+        TestEntity testEntity1 = testRepository.save(new TestEntity("First", Instant.now().minus(20, ChronoUnit.MINUTES)));
+        TestEntity testEntity2 = testRepository.save(new TestEntity("Second", (Money) null));
+        TestEntity testEntity3 = testRepository.save(new TestEntity("Third", Instant.now().minus(5, ChronoUnit.MINUTES)));
+        TestEntity testEntity4 = testRepository.save(new TestEntity("Four", (Money) null));
+        TestEntity testEntity5 = testRepository.save(new TestEntity("Five", Instant.now().minus(3, ChronoUnit.MINUTES)));
+
+        Sort nullsLast = Sort.by(Sort.Order.asc("date").nullsLast(), Sort.Order.asc("id"));
+        for (int size = 1; size <= 3; size++) {
+            List<TestEntity> result = testRepository.streamAllBy(null, CursorPageRequest.of(size, nullsLast)).collect(Collectors.toList());
+            assertThat(result, contains(testEntity1, testEntity3, testEntity5, testEntity2, testEntity4));
+        }
+
+        Sort nullsFirst = Sort.by(Sort.Order.desc("date").nullsFirst(), Sort.Order.desc("id"));
+        List<TestEntity> result = testRepository.streamAllBy(null, CursorPageRequest.of(1, nullsFirst)).collect(Collectors.toList());
+        assertThat(result, contains(testEntity4, testEntity2, testEntity5, testEntity3, testEntity1));
+
+        Sort nativeSort = Sort.by(Sort.Order.asc("date"), Sort.Order.asc("id"));
+        result = testRepository.streamAllBy(null, CursorPageRequest.of(1, nativeSort)).collect(Collectors.toList());
+        assertThat(result, equalTo(testRepository.findAll(nativeSort)));
+
+        CursorPaginationSlice<TestEntity> page = testRepository.findAllBy(null, CursorPageRequest.of(2, nullsLast));
+        page = testRepository.findAllBy(null, CursorPageRequest.of(page.getContinuationToken(), 2, nullsLast));
+        assertThat(page.getContent(), contains(testEntity5, testEntity2));
+        page = testRepository.findAllBy(null, CursorPageRequest.of(page.getContinuationToken(), 2, nullsLast));
+        assertThat(page.getContent(), contains(testEntity4));
+        page = testRepository.findAllBy(null, CursorPageRequest.of(page.getPreviousToken(), 2, nullsLast));
+        assertThat(page.getContent(), contains(testEntity5, testEntity2));
+
+        CustomRepositoryImpl<TestEntity, Long> repositoryImpl = AopTestUtils.getUltimateTargetObject(testRepository);
+        repositoryImpl.setContinuationTokenCodec(new TextContinuationTokenCodec());
+        try {
+            result = testRepository.streamAllBy(null, CursorPageRequest.of(1, nullsLast)).collect(Collectors.toList());
+            assertThat(result, contains(testEntity1, testEntity3, testEntity5, testEntity2, testEntity4));
+        } finally {
+            repositoryImpl.setContinuationTokenCodec(new BinaryContinuationTokenCodec());
+        }
+    }
+
+    @Test
+    public void testCursorPaginationNestedPath() {
+        Currency eur = Currency.getInstance("EUR");
+        TestEntity testEntity1 = testRepository.save(new TestEntity("First", Money.money(30D, eur), new TestChildEntity("b")));
+        TestEntity testEntity2 = testRepository.save(new TestEntity("Second", Money.money(10D, eur), new TestChildEntity("a")));
+        TestEntity testEntity3 = testRepository.save(new TestEntity("Third", Money.money(20D, eur), new TestChildEntity("c")));
+        TestEntity testEntity4 = testRepository.save(new TestEntity("Four", Money.money(10D, eur), new TestChildEntity("a")));
+
+        Sort childSort = Sort.by(Sort.Order.asc("childEntity.stringField"), Sort.Order.asc("id"));
+        List<TestEntity> result = testRepository.streamAllBy(null, CursorPageRequest.of(1, childSort)).collect(Collectors.toList());
+        assertThat(result, contains(testEntity2, testEntity4, testEntity1, testEntity3));
+
+        CursorPaginationSlice<TestEntity> page = testRepository.findAllBy(null, CursorPageRequest.of(3, childSort));
+        assertThat(page.getContent(), contains(testEntity2, testEntity4, testEntity1));
+        page = testRepository.findAllBy(null, CursorPageRequest.of(page.getContinuationToken(), 3, childSort));
+        assertThat(page.hasNext(), equalTo(false));
+        assertThat(page.getContent(), contains(testEntity3));
+
+        // the join of the specification is reused by the sort instead of joining the child twice
+        Specification<TestEntity> notC = (root, query, cb) -> cb.notEqual(root.join("childEntity").get("stringField"), "c");
+        page = testRepository.findAllBy(notC, CursorPageRequest.of(2, childSort));
+        assertThat(page.getContent(), contains(testEntity2, testEntity4));
+        page = testRepository.findAllBy(notC, CursorPageRequest.of(page.getContinuationToken(), 2, childSort));
+        assertThat(page.hasNext(), equalTo(false));
+        assertThat(page.getContent(), contains(testEntity1));
+
+        Sort embeddedSort = Sort.by(Sort.Order.desc("moneyField.value"), Sort.Order.desc("id"));
+        result = testRepository.streamAllBy(null, CursorPageRequest.of(1, embeddedSort)).collect(Collectors.toList());
+        assertThat(result, contains(testEntity1, testEntity3, testEntity4, testEntity2));
+    }
+
+    @Test
+    public void testCursorPaginationTextToken() {
+        TestEntity testEntity1 = testRepository.save(new TestEntity("First", Instant.now().minus(20, ChronoUnit.MINUTES)));
+        TestEntity testEntity2 = testRepository.save(new TestEntity("Second", Instant.now().minus(10, ChronoUnit.MINUTES)));
+        TestEntity testEntity3 = testRepository.save(new TestEntity("Third", Instant.now().minus(5, ChronoUnit.MINUTES)));
+        Sort sort = Sort.by(Sort.Order.asc("stringField"), Sort.Order.asc("id"));
+
+        String textToken = new TextContinuationTokenCodec().encode(new ContinuationToken(0, false, new Object[]{testEntity1.stringField, testEntity1.id}), sort);
+        CursorPaginationSlice<TestEntity> result = testRepository.findAllBy(null, CursorPageRequest.of(textToken, 1, sort));
+        assertThat(result.hasNext(), equalTo(true));
+        assertThat(result.getContent(), contains(testEntity2));
+        assertThat(result.getContinuationToken().length(), lessThan(textToken.length()));
+
+        result = testRepository.findAllBy(null, CursorPageRequest.of(result.getContinuationToken(), 1, sort));
+        assertThat(result.hasNext(), equalTo(false));
+        assertThat(result.getContent(), contains(testEntity3));
+    }
+
+    @Test
+    public void testQueryTemplateCache() {
+        CustomRepositoryImpl<TestEntity, Long> repositoryImpl = AopTestUtils.getUltimateTargetObject(testRepository);
+        repositoryImpl.setQueryTemplateCacheEnabled(true);
+        try {
+            TestEntity testEntity1 = testRepository.save(new TestEntity("First", Instant.now().minus(20, ChronoUnit.MINUTES)));
+            TestEntity testEntity2 = testRepository.save(new TestEntity("Second", Instant.now().minus(10, ChronoUnit.MINUTES)));
+            TestEntity testEntity3 = testRepository.save(new TestEntity("First", Instant.now().minus(5, ChronoUnit.MINUTES)));
+            TestEntity testEntity4 = testRepository.save(new TestEntity("First", Instant.now().minus(4, ChronoUnit.MINUTES)));
+            Sort sort = Sort.by(Sort.Order.asc("id"));
+            QueryInterpretationCache interpretations = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getQueryEngine().getInterpretationCache();
+            int cachedInterpretations = interpretations.getNumberOfCachedHqlInterpretations();
+
+            for (int i = 0; i < 2; i++) {
+                CursorPaginationSlice<TestEntity> result = testRepository.findAllBy(new StringFieldSpecification("First"), CursorPageRequest.of(2, sort));
+                assertThat(result.getContent(), contains(testEntity1, testEntity3));
+                assertThat(result.getTotalElements().orElse(null), equalTo(3L));
+
+                result = testRepository.findAllBy(new StringFieldSpecification("First"), CursorPageRequest.of(result.getContinuationToken(), 2, sort));
+                assertThat(result.hasNext(), equalTo(false));
+                assertThat(result.getContent(), contains(testEntity4));
+
+                // the HQL of the two templates is interpreted by the first iteration and reused by the second one
+                assertThat(interpretations.getNumberOfCachedHqlInterpretations(), equalTo(cachedInterpretations + 2));
+            }
+
+            CursorPaginationSlice<TestEntity> result = testRepository.findAllBy(new StringFieldSpecification("Second"), CursorPageRequest.of(2, sort));
+            assertThat(result.getContent(), contains(testEntity2));
+
+            List<TestEntityProjectionSingleConstructor> projections = testRepository.findAllProjection(new StringFieldSpecification("Second"),
+                    sort, TestEntityProjectionSingleConstructor.class);
+            assertThat(projections.size(), is(1));
+            assertThat(projections.get(0).id, is(testEntity2.id));
+
+            // parameters are bound also when the queries are not cached
+            repositoryImpl.setQueryTemplateCacheEnabled(false);
+            result = testRepository.findAllBy(new StringFieldSpecification("First"), CursorPageRequest.of(2, sort));
+            assertThat(result.getContent(), contains(testEntity1, testEntity3));
+            assertThat(result.getTotalElements().orElse(null), equalTo(3L));
+            assertThat(testRepository.count(new StringFieldSpecification("Second")), equalTo(1L));
+        } finally {
+            repositoryImpl.setQueryTemplateCacheEnabled(false);
+        }
+    }
+
+    @Test
+    public void testQueryTemplateCacheRepositoryMethodHints() {
+        CustomRepositoryImpl<TestEntity, Long> repositoryImpl = AopTestUtils.getUltimateTargetObject(testReadOnlyRepository);
+        TestEntity testEntity = testRepository.save(new TestEntity("First", Instant.now()));
+        Sort sort = Sort.by(Sort.Order.asc("id"));
+        Session session = entityManager.unwrap(Session.class);
+        try {
+            for (boolean queryTemplateCacheEnabled : new boolean[]{false, true}) {
+                repositoryImpl.setQueryTemplateCacheEnabled(queryTemplateCacheEnabled);
+                entityManager.flush();
+                entityManager.clear();
+
+                CursorPaginationSlice<TestEntity> result = testReadOnlyRepository.findAllBy(null, CursorPageRequest.of(1, sort));
+                assertThat(result.getContent().get(0).id, is(testEntity.id));
+                assertThat(session.isReadOnly(result.getContent().get(0)), is(true));
+            }
+        } finally {
+            repositoryImpl.setQueryTemplateCacheEnabled(false);
+        }
+    }
+
+    @Test
+    public void testMicrometerMetrics() {
+        CustomRepositoryImpl<TestEntity, Long> repositoryImpl = AopTestUtils.getUltimateTargetObject(testRepository);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        repositoryImpl.setMetrics(new MicrometerCursorPaginationMetrics(registry));
+        try {
+            testRepository.save(new TestEntity("First", Instant.now().minus(20, ChronoUnit.MINUTES)));
+            testRepository.save(new TestEntity("Second", Instant.now().minus(10, ChronoUnit.MINUTES)));
+            testRepository.save(new TestEntity("Third", Instant.now().minus(5, ChronoUnit.MINUTES)));
+            Sort sort = Sort.by(Sort.Order.asc("id"));
+
+            CursorPaginationSlice<TestEntity> result = testRepository.findAllBy(null, CursorPageRequest.of(2, sort));
+            testRepository.findAllBy(null, CursorPageRequest.of(result.getContinuationToken(), 2, sort));
+            testRepository.findAllIds(null);
+            assertThatThrownBy(() -> testRepository.findAllBy(null, CursorPageRequest.of(result.getContinuationToken(), 2, Sort.by(Sort.Order.desc("id")))))
+                    .hasRootCauseInstanceOf(IllegalArgumentException.class);
+
+            assertThat(registry.get("cursor.pagination.query").tags("operation", "findAllBy", "page", "first").timer().count(), equalTo(1L));
+            assertThat(registry.get("cursor.pagination.rows").tags("operation", "findAllBy", "page", "continuation").summary().totalAmount(), equalTo(1.0));
+            assertThat(registry.get("cursor.pagination.page.size").tags("operation", "findAllBy").summary().max(), equalTo(2.0));
+            assertThat(registry.get("cursor.pagination.rows").tags("operation", "findAllIds", "projection", "Long").summary().totalAmount(), equalTo(3.0));
+            assertThat(registry.get("cursor.pagination.count").tags("domain", "TestEntity").timer().count(), equalTo(1L));
+            assertThat(registry.get("cursor.pagination.token.decode.failures").counter().count(), equalTo(1.0));
+        } finally {
+            repositoryImpl.setMetrics(CursorPaginationMetrics.NOOP);
+        }
+    }
+
+    public static class StringFieldSpecification implements TemplateSpecification<TestEntity> {
+        private final String value;
+
+        public StringFieldSpecification(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public Predicate toPredicate(Root<TestEntity> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+            return cb.equal(root.get("stringField"), cb.parameter(String.class, "stringField"));
+        }
+
+        @Override
+        public Object getTemplateKey() {
+            return StringFieldSpecification.class;
+        }
+
+        @Override
+        public Map<String, Object> getParameters() {
+            return Collections.singletonMap("stringField", value);
+        }
+    }
+
     public static class TestEntityProjectionSingleConstructor {
         Long id;
         Money moneyField;
@@ -292,6 +1176,14 @@ public class CustomRepositoryImplTest {
         }
     }
 
+    public static class TestEntityProjectionWithoutId {
+        String stringField;
+
+        public TestEntityProjectionWithoutId(String stringField) {
+            this.stringField = stringField;
+        }
+    }
+
     public static class TestEntityProjectionWithSelectPath {
         Long id;
         String stringField;
@@ -0,0 +1,16 @@
+package it.halfweight.spring.cursor.pagination.jpa.repository;
+
+import it.halfweight.spring.cursor.pagination.jpa.domain.CursorPageable;
+import it.halfweight.spring.cursor.pagination.jpa.domain.CursorPaginationSlice;
+import it.halfweight.spring.cursor.pagination.jpa.domain.TestEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.QueryHints;
+
+public interface TestReadOnlyRepository extends CustomRepository<TestEntity, Long> {
+
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    CursorPaginationSlice<TestEntity> findAllBy(Specification<TestEntity> spec, CursorPageable cursorPageable);
+}